@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.benchmark;
+
+import com.anthemengineering.sox.ChainTemplate;
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.effects.Compand;
+import com.anthemengineering.sox.effects.Flanger;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.effects.LowpassFilter;
+import com.anthemengineering.sox.format.InMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of setting up (and tearing down) a five effect chain without flowing it, through
+ * {@link SoxEffectsChain.Builder#build()} and through a {@link ChainTemplate}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ChainBuildBenchmark {
+    private ByteBuffer wav;
+    private ByteBuffer scratch;
+    private ChainTemplate template;
+
+    @Setup
+    public void setup() {
+        wav = Fixtures.wavBuffer(1, 2);
+        scratch = ByteBuffer.allocateDirect(wav.capacity());
+        template = effects().compile();
+    }
+
+    @Benchmark
+    public void build() {
+        effects()
+                .source(new InMemory().buffer(wav, wav.capacity()))
+                .sink(new InMemory().buffer(scratch, scratch.capacity()))
+                .build()
+                .close();
+    }
+
+    @Benchmark
+    public void instantiateTemplate() {
+        template.instantiate(
+                new InMemory().buffer(wav, wav.capacity()),
+                new InMemory().buffer(scratch, scratch.capacity()))
+                .close();
+    }
+
+    private static SoxEffectsChain.Builder effects() {
+        return SoxEffectsChain.builder()
+                .effect(new HighpassFilter().frequency("100"))
+                .effect(new LowpassFilter().frequency("8000"))
+                .effect(new Compand().addAttackDecay(0.3f, 1f).addTransferFunction(-70f, -60f).gainDb(-5f))
+                .effect(new Flanger())
+                .effect("gain", "-3");
+    }
+}
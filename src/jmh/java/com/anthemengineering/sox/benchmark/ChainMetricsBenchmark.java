@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.benchmark;
+
+import com.anthemengineering.sox.ChainMetrics;
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.format.InMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link SoxEffectsChain.Builder#metrics(ChainMetrics)} on a flow, by channel count (the filter runs once
+ * per channel, so each channel is measured separately).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ChainMetricsBenchmark {
+    @Param({"1", "8"})
+    public int channels;
+
+    @Param({"false", "true"})
+    public boolean instrumented;
+
+    private ByteBuffer wav;
+    private ByteBuffer scratch;
+
+    @Setup
+    public void setup() {
+        wav = Fixtures.wavBuffer(10, channels);
+        scratch = ByteBuffer.allocateDirect(wav.capacity());
+    }
+
+    @Benchmark
+    public void flow(final Blackhole blackhole) {
+        ChainMetrics metrics = null;
+        if (instrumented) {
+            metrics = new ChainMetrics() {
+                @Override
+                public void record(int stage, String effect, long nanos, long samplesIn, long samplesOut, long clips) {
+                    blackhole.consume(nanos);
+                }
+            };
+        }
+
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(new InMemory().buffer(wav, wav.capacity()))
+                .sink(new InMemory().buffer(scratch, scratch.capacity()))
+                .effect(new HighpassFilter().frequency("100"))
+                .metrics(metrics)
+                .build()) {
+            chain.flowEffects();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Generates the audio the benchmarks run on: 16-bit wav files of a given length and channel count, holding a
+ * different tone per channel. Files are written once to {@code target/jmh-fixtures} and reused across runs.
+ */
+final class Fixtures {
+    static final int RATE = 44100;
+
+    private static final Path DIRECTORY = Paths.get("target", "jmh-fixtures");
+    private static final int HEADER_SIZE = 44;
+
+    private Fixtures() {}
+
+    static synchronized Path wav(int seconds, int channels) {
+        Path path = DIRECTORY.resolve(String.format("tone-%ds-%dch.wav", seconds, channels));
+
+        try {
+            if (!Files.exists(path)) {
+                Files.createDirectories(DIRECTORY);
+                generate(path, seconds, channels);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return path;
+    }
+
+    static byte[] wavBytes(int seconds, int channels) {
+        try {
+            return Files.readAllBytes(wav(seconds, channels));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return a direct buffer holding the whole file, e.g. for {@link com.anthemengineering.sox.format.InMemory}.
+     */
+    static ByteBuffer wavBuffer(int seconds, int channels) {
+        byte[] bytes = wavBytes(seconds, channels);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+
+        return buffer;
+    }
+
+    /**
+     * Writes the file a second at a time, so fixtures of several GB can be generated without holding them in memory.
+     */
+    private static void generate(Path path, int seconds, int channels) throws IOException {
+        long dataSize = (long) seconds * RATE * channels * 2;
+        Path partial = path.resolveSibling(path.getFileName() + ".partial");
+        ByteBuffer block = ByteBuffer.allocate(RATE * channels * 2).order(ByteOrder.LITTLE_ENDIAN);
+
+        try (FileChannel channel = FileChannel.open(partial,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(new byte[] {'R', 'I', 'F', 'F'}).putInt((int) (36 + dataSize));
+            header.put(new byte[] {'W', 'A', 'V', 'E'});
+            header.put(new byte[] {'f', 'm', 't', ' '}).putInt(16)
+                    .putShort((short) 1)
+                    .putShort((short) channels)
+                    .putInt(RATE)
+                    .putInt(RATE * channels * 2)
+                    .putShort((short) (channels * 2))
+                    .putShort((short) 16);
+            header.put(new byte[] {'d', 'a', 't', 'a'}).putInt((int) dataSize);
+            header.flip();
+            writeFully(channel, header);
+
+            for (int second = 0; second < seconds; second++) {
+                block.clear();
+
+                for (int i = 0; i < RATE; i++) {
+                    long frame = (long) second * RATE + i;
+
+                    for (int c = 0; c < channels; c++) {
+                        double frequency = 220.0 * (c + 1);
+                        block.putShort((short) (Math.sin(2 * Math.PI * frequency * frame / RATE) * 16000));
+                    }
+                }
+
+                block.flip();
+                writeFully(channel, block);
+            }
+        }
+
+        Files.move(partial, path);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
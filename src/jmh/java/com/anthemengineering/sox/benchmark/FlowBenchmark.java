@@ -0,0 +1,103 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.benchmark;
+
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.effects.Compand;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.format.FileSink;
+import com.anthemengineering.sox.format.FileSource;
+import com.anthemengineering.sox.format.InMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link SoxEffectsChain#flowEffects()} from file to file and from {@link InMemory} to
+ * {@link InMemory}, by length and channel count.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FlowBenchmark {
+    @Param({"1", "10", "60"})
+    public int seconds;
+
+    @Param({"1", "2", "6"})
+    public int channels;
+
+    private Path input;
+    private Path output;
+    private ByteBuffer wav;
+    private ByteBuffer scratch;
+
+    @Setup
+    public void setup() throws Exception {
+        input = Fixtures.wav(seconds, channels);
+        output = Files.createTempFile("flow-benchmark", ".wav");
+        wav = Fixtures.wavBuffer(seconds, channels);
+        scratch = ByteBuffer.allocateDirect(wav.capacity());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public void flowFile() {
+        flow(effects()
+                .source(new FileSource().path(input))
+                .sink(new FileSink().path(output).allowOverwrite()));
+    }
+
+    @Benchmark
+    public void flowInMemory() {
+        flow(effects()
+                .source(new InMemory().buffer(wav, wav.capacity()))
+                .sink(new InMemory().buffer(scratch, scratch.capacity())));
+    }
+
+    private static void flow(SoxEffectsChain.Builder builder) {
+        try (SoxEffectsChain chain = builder.build()) {
+            chain.flowEffects();
+        }
+    }
+
+    private static SoxEffectsChain.Builder effects() {
+        return SoxEffectsChain.builder()
+                .effect(new HighpassFilter().frequency("100"))
+                .effect(new Compand().addAttackDecay(0.3f, 1f).addTransferFunction(-70f, -60f).gainDb(-5f));
+    }
+}
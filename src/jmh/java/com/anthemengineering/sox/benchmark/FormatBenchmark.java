@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.benchmark;
+
+import com.anthemengineering.sox.Sox;
+import com.anthemengineering.sox.jna.size_t;
+import com.anthemengineering.sox.jna.sox_format_t;
+import com.sun.jna.Native;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of opening (and closing) formats with {@link Sox#openRead} and {@link Sox#openWrite}, from files and memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class FormatBenchmark {
+    @Param({"1", "60"})
+    public int seconds;
+
+    @Param({"1", "2", "6"})
+    public int channels;
+
+    private String path;
+    private ByteBuffer wav;
+    private ByteBuffer scratch;
+    private String outputPath;
+    private sox_format_t source;
+
+    @Setup
+    public void setup() throws Exception {
+        Path fixture = Fixtures.wav(seconds, channels);
+        path = fixture.toAbsolutePath().toString();
+        wav = Fixtures.wavBuffer(seconds, channels);
+        scratch = ByteBuffer.allocateDirect(wav.capacity());
+        outputPath = Files.createTempFile("format-benchmark", ".wav").toAbsolutePath().toString();
+        source = Sox.openRead(path);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Sox.close(source);
+        Files.deleteIfExists(Paths.get(outputPath));
+    }
+
+    @Benchmark
+    public void openReadFile() {
+        Sox.close(Sox.openRead(path));
+    }
+
+    @Benchmark
+    public void openReadMemory() {
+        Sox.close(Sox.openRead(Native.getDirectBufferPointer(wav), new size_t(wav.capacity())));
+    }
+
+    @Benchmark
+    public void openWriteFile() {
+        Sox.close(Sox.openWrite(outputPath, source.signal, true));
+    }
+
+    @Benchmark
+    public void openWriteMemory() {
+        Sox.close(Sox.openWrite(
+                Native.getDirectBufferPointer(scratch),
+                new size_t(scratch.capacity()),
+                source.signal,
+                null,
+                "wav",
+                null));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.benchmark;
+
+import com.anthemengineering.sox.SoxSampleReader;
+import com.anthemengineering.sox.format.FileSource;
+import com.anthemengineering.sox.format.MappedFileSource;
+import com.anthemengineering.sox.format.SoxSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a whole wav file through {@link FileSource} (stdio reads) against {@link MappedFileSource} (a memory
+ * mapping). The one hour, 8 channel fixture is about 2.5GB, larger than {@link java.nio.channels.FileChannel#map}
+ * can map at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class MappedFileBenchmark {
+    @Param({"60", "3600"})
+    public int seconds;
+
+    @Param({"2", "8"})
+    public int channels;
+
+    private Path input;
+
+    @Setup
+    public void setup() {
+        input = Fixtures.wav(seconds, channels);
+    }
+
+    @Benchmark
+    public long readFile() {
+        return readAll(new FileSource().path(input));
+    }
+
+    @Benchmark
+    public long readMapped() {
+        return readAll(new MappedFileSource().path(input));
+    }
+
+    private static long readAll(SoxSource source) {
+        long sum = 0;
+
+        try (SoxSampleReader reader = SoxSampleReader.builder().source(source).blockSize(65536).build()) {
+            IntBuffer block;
+            while ((block = reader.read()) != null) {
+                sum += block.get(block.limit() - 1);
+            }
+        }
+
+        return sum;
+    }
+}
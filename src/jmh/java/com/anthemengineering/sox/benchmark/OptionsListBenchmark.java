@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.benchmark;
+
+import com.anthemengineering.sox.effects.Compand;
+import com.anthemengineering.sox.effects.Flanger;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.effects.utils.Filter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning the typed effects into libsox options with
+ * {@link com.anthemengineering.sox.effects.SoxEffect#getOptionsList()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class OptionsListBenchmark {
+    private Filter highpass;
+    private Compand compand;
+    private Flanger flanger;
+
+    @Setup
+    public void setup() {
+        highpass = new HighpassFilter()
+                .frequency("1000")
+                .pole(Filter.Pole.DOUBLE_POLE)
+                .width("10");
+        compand = new Compand()
+                .addAttackDecay(0.3f, 1f)
+                .addAttackDecay(0.2f, 0.8f)
+                .addTransferFunction(-70f, -60f)
+                .addTransferFunction(-20f)
+                .softKneeDb(6f)
+                .gainDb(-5f);
+        flanger = new Flanger()
+                .delay("0")
+                .depth("2")
+                .speed("0.5");
+    }
+
+    @Benchmark
+    public String[] highpass() {
+        return highpass.getOptionsList();
+    }
+
+    @Benchmark
+    public String[] compand() {
+        return compand.getOptionsList();
+    }
+
+    @Benchmark
+    public String[] flanger() {
+        return flanger.getOptionsList();
+    }
+}
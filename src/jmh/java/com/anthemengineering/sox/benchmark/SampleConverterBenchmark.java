@@ -0,0 +1,135 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.benchmark;
+
+import com.anthemengineering.sox.SampleConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SampleConverter} against the per-sample loops it replaces: relative buffer gets and puts, and
+ * {@link Math#round(double)} with explicit clipping as {@code SoxSampleWriter} used to do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SampleConverterBenchmark {
+    @Param({"1024", "65536"})
+    public int samples;
+
+    private int[] ints;
+    private float[] floats;
+    private int[] intsOut;
+    private float[] floatsOut;
+    private IntBuffer directInts;
+    private FloatBuffer heapFloats;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        ints = new int[samples];
+        floats = new float[samples];
+        intsOut = new int[samples];
+        floatsOut = new float[samples];
+
+        for (int i = 0; i < samples; i++) {
+            ints[i] = random.nextInt();
+            floats[i] = random.nextFloat() * 2.2f - 1.1f;
+        }
+
+        directInts = ByteBuffer.allocateDirect(samples * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        directInts.put(ints).flip();
+        heapFloats = FloatBuffer.allocate(samples);
+    }
+
+    @Benchmark
+    public float[] toFloatNaive() {
+        IntBuffer src = IntBuffer.wrap(ints);
+        FloatBuffer dst = FloatBuffer.wrap(floatsOut);
+
+        while (src.hasRemaining()) {
+            dst.put(src.get() / 2147483648f);
+        }
+
+        return floatsOut;
+    }
+
+    @Benchmark
+    public float[] toFloat() {
+        SampleConverter.toFloat(ints, 0, floatsOut, 0, samples);
+
+        return floatsOut;
+    }
+
+    @Benchmark
+    public FloatBuffer toFloatFromDirectBuffer() {
+        directInts.rewind();
+        heapFloats.clear();
+        SampleConverter.toFloat(directInts, heapFloats);
+
+        return heapFloats;
+    }
+
+    @Benchmark
+    public long fromFloatNaive() {
+        long clips = 0;
+
+        for (int i = 0; i < samples; i++) {
+            double d = floats[i] * 2147483648.0;
+
+            if (d >= Integer.MAX_VALUE) {
+                if (d > 2147483648.0) {
+                    clips++;
+                }
+                intsOut[i] = Integer.MAX_VALUE;
+            } else if (d <= Integer.MIN_VALUE) {
+                if (d < -2147483648.0) {
+                    clips++;
+                }
+                intsOut[i] = Integer.MIN_VALUE;
+            } else {
+                intsOut[i] = (int) Math.round(d);
+            }
+        }
+
+        return clips;
+    }
+
+    @Benchmark
+    public long fromFloat() {
+        return SampleConverter.fromFloat(floats, 0, intsOut, 0, samples);
+    }
+}
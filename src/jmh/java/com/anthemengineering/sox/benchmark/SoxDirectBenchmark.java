@@ -0,0 +1,187 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.benchmark;
+
+import com.anthemengineering.sox.Sox;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.jna.SoxDirect;
+import com.anthemengineering.sox.jna.SoxLibrary;
+import com.anthemengineering.sox.jna.size_t;
+import com.anthemengineering.sox.jna.sox_effect_t;
+import com.anthemengineering.sox.jna.sox_effects_chain_t;
+import com.anthemengineering.sox.jna.sox_format_t;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.StringArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link SoxLibrary#INSTANCE} proxy against the {@link SoxDirect} mapping for the calls made per block
+ * of samples and per effect.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SoxDirectBenchmark {
+    public enum Mapping {
+        PROXY,
+        DIRECT
+    }
+
+    @Param({"PROXY", "DIRECT"})
+    public Mapping mapping;
+
+    @Param({"256", "4096"})
+    public int blockSize;
+
+    private ByteBuffer wav;
+    private IntBuffer block;
+    private ByteBuffer scratch;
+    private sox_format_t source;
+    private sox_format_t destination;
+
+    @Setup
+    public void setup() {
+        if (mapping == Mapping.DIRECT && !SoxDirect.isAvailable()) {
+            throw new IllegalStateException("Direct mapping is not available");
+        }
+
+        wav = new TestResource("/ascending-fifths.wav").asByteBuffer();
+        block = ByteBuffer.allocateDirect(blockSize * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        scratch = ByteBuffer.allocateDirect(wav.capacity());
+
+        source = Sox.openRead(Native.getDirectBufferPointer(wav), new size_t(wav.capacity()));
+        destination = Sox.openWrite(
+                Native.getDirectBufferPointer(scratch),
+                new size_t(scratch.capacity()),
+                source.signal,
+                null,
+                "wav",
+                null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Sox.close(source);
+        Sox.close(destination);
+    }
+
+    @Benchmark
+    public long readAll() {
+        sox_format_t format = Sox.openRead(Native.getDirectBufferPointer(wav), new size_t(wav.capacity()));
+        size_t len = new size_t(blockSize);
+        long total = 0;
+        long read;
+
+        try {
+            if (mapping == Mapping.PROXY) {
+                while ((read = SoxLibrary.INSTANCE.sox_read(format, block, len).longValue()) > 0) {
+                    total += read;
+                }
+            } else {
+                while ((read = SoxDirect.sox_read(format.getPointer(), block, len).longValue()) > 0) {
+                    total += read;
+                }
+            }
+        } finally {
+            Sox.close(format);
+        }
+
+        return total;
+    }
+
+    @Benchmark
+    public void buildChain() {
+        sox_effects_chain_t chain = Sox.createEffectsChain(source.encoding, destination.encoding);
+
+        try {
+            add(chain, create("input"), source.getPointer());
+            add(chain, create("highpass"), "1000");
+            add(chain, create("flanger"));
+            add(chain, create("output"), destination.getPointer());
+        } finally {
+            if (mapping == Mapping.PROXY) {
+                SoxLibrary.INSTANCE.sox_delete_effects_chain(chain);
+            } else {
+                SoxDirect.sox_delete_effects_chain(chain.getPointer());
+            }
+        }
+    }
+
+    private static sox_effect_t create(String name) {
+        return SoxLibrary.INSTANCE.sox_create_effect(SoxLibrary.INSTANCE.sox_find_effect(name));
+    }
+
+    private void add(sox_effects_chain_t chain, sox_effect_t effect, String... options) {
+        if (mapping == Mapping.PROXY) {
+            SoxLibrary.INSTANCE.sox_effect_options(effect, options.length, options);
+            SoxLibrary.INSTANCE.sox_add_effect(chain, effect, source.signal, source.signal);
+        } else {
+            SoxDirect.sox_effect_options(
+                    effect.getPointer(),
+                    options.length,
+                    options.length > 0 ? new StringArray(options) : null);
+            SoxDirect.sox_add_effect(
+                    chain.getPointer(),
+                    effect.getPointer(),
+                    source.signal.getPointer(),
+                    source.signal.getPointer());
+        }
+
+        // the chain works on a copy, as in SoxEffectsChain
+        Sox.freeEffect(effect);
+    }
+
+    private void add(sox_effects_chain_t chain, sox_effect_t effect, Pointer format) {
+        if (mapping == Mapping.PROXY) {
+            SoxLibrary.INSTANCE.sox_effect_options(effect, 1, new Pointer[] { format });
+            SoxLibrary.INSTANCE.sox_add_effect(chain, effect, source.signal, source.signal);
+        } else {
+            Memory argv = new Memory(Native.POINTER_SIZE);
+            argv.setPointer(0, format);
+
+            SoxDirect.sox_effect_options(effect.getPointer(), 1, argv);
+            SoxDirect.sox_add_effect(
+                    chain.getPointer(),
+                    effect.getPointer(),
+                    source.signal.getPointer(),
+                    source.signal.getPointer());
+        }
+
+        Sox.freeEffect(effect);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.benchmark;
+
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxExecutor;
+import com.anthemengineering.sox.effects.Compand;
+import com.anthemengineering.sox.effects.Flanger;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.format.InMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link SoxExecutor} by thread count, flowing a batch of independent chains of one second of audio.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SoxExecutorBenchmark {
+    private static final int CHAINS = 32;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ByteBuffer wav;
+    private List<ByteBuffer> scratch;
+    private SoxExecutor executor;
+
+    @Setup
+    public void setup() {
+        wav = Fixtures.wavBuffer(1, 2);
+        scratch = new ArrayList<>();
+        for (int i = 0; i < CHAINS; i++) {
+            scratch.add(ByteBuffer.allocateDirect(wav.capacity() * 2));
+        }
+        executor = new SoxExecutor(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public void flowBatch() throws Exception {
+        List<Future<SoxEffectsChain>> results = new ArrayList<>();
+
+        for (ByteBuffer sink : scratch) {
+            results.add(executor.submit(SoxEffectsChain.builder()
+                    .source(new InMemory().buffer(wav, wav.capacity()))
+                    .sink(new InMemory().buffer(sink, sink.capacity()))
+                    .effect(new HighpassFilter().frequency("1000"))
+                    .effect(new Flanger())
+                    .effect(new Compand().addAttackDecay(0.3f, 1f).addTransferFunction(-70f, -60f).gainDb(-5f))));
+        }
+
+        for (Future<SoxEffectsChain> result : results) {
+            result.get();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.benchmark;
+
+import com.anthemengineering.sox.FlowListener;
+import com.anthemengineering.sox.SoxCancelledException;
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxGlobals;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.format.InMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sweeps {@link SoxGlobals.Builder#bufferSize(int)}: {@link #flow()} measures throughput over a minute of audio,
+ * {@link #firstOutput()} the latency until the sink has received its first samples.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SoxGlobalsBenchmark {
+    @Param({"1024", "8192", "65536", "262144"})
+    public int bufferSize;
+
+    @Param({"2"})
+    public int channels;
+
+    private int previousBufferSize;
+    private ByteBuffer wav;
+    private ByteBuffer scratch;
+
+    private final FlowListener stopAtFirstOutput = new FlowListener() {
+        @Override
+        public boolean onProgress(long samples, boolean done) {
+            return samples == 0;
+        }
+    };
+
+    @Setup
+    public void setup() {
+        previousBufferSize = SoxGlobals.getBufferSize();
+        SoxGlobals.builder().bufferSize(bufferSize).apply();
+
+        wav = Fixtures.wavBuffer(60, channels);
+        scratch = ByteBuffer.allocateDirect(wav.capacity());
+    }
+
+    @TearDown
+    public void tearDown() {
+        SoxGlobals.builder().bufferSize(previousBufferSize).apply();
+    }
+
+    @Benchmark
+    public void flow() {
+        try (SoxEffectsChain chain = build()) {
+            chain.flowEffects();
+        }
+    }
+
+    @Benchmark
+    public void firstOutput() {
+        try (SoxEffectsChain chain = build()) {
+            chain.flowEffects(stopAtFirstOutput, 0, TimeUnit.MILLISECONDS);
+        } catch (SoxCancelledException e) {
+            // expected once the first samples are out
+        }
+    }
+
+    private SoxEffectsChain build() {
+        return SoxEffectsChain.builder()
+                .source(new InMemory().buffer(wav, wav.capacity()))
+                .sink(new InMemory().buffer(scratch, scratch.capacity()))
+                .effect(new HighpassFilter().frequency("100"))
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.benchmark;
+
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxGlobals;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.format.InMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of {@link SoxGlobals.Builder#useThreads(boolean)} by channel count, over ten seconds of audio resampled
+ * and filtered one channel at a time. Without an OpenMP build of libsox both settings should perform the same (see
+ * {@link SoxGlobals#isThreadingAvailable()}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class UseThreadsBenchmark {
+    @Param({"1", "2", "6", "8"})
+    public int channels;
+
+    @Param({"false", "true"})
+    public boolean useThreads;
+
+    private boolean previous;
+    private ByteBuffer wav;
+    private ByteBuffer scratch;
+
+    @Setup
+    public void setup() {
+        previous = SoxGlobals.isUsingThreads();
+        SoxGlobals.builder().useThreads(useThreads).apply();
+
+        wav = Fixtures.wavBuffer(10, channels);
+        // 48kHz output is larger than the 44.1kHz input
+        scratch = ByteBuffer.allocateDirect(wav.capacity() * 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SoxGlobals.builder().useThreads(previous).apply();
+    }
+
+    @Benchmark
+    public void flow() {
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(new InMemory().buffer(wav, wav.capacity()))
+                .sink(new InMemory().buffer(scratch, scratch.capacity()))
+                .effect("rate", "-v", "48000")
+                .effect(new HighpassFilter().frequency("100"))
+                .build()) {
+            chain.flowEffects();
+        }
+    }
+}
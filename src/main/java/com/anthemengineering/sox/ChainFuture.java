@@ -0,0 +1,185 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.anthemengineering.sox.ValidationUtil.nonNull;
+
+/**
+ * The pending flow of a {@link SoxEffectsChain} on an executor (see
+ * {@link SoxEffectsChain#flowEffectsAsync(Executor)}).
+ *
+ * <p>Listeners are run once the flow completes, fails or is cancelled, which makes the future usable from callback
+ * based code without blocking a thread in {@link #get()}. The chain is not closed when the flow completes.</p>
+ *
+ * <p>Cancelling a flow that has not started yet keeps it from starting. Cancelling a running flow cancels it
+ * cooperatively (see {@link SoxEffectsChain#cancel()}) and the chain stays cancelled; the future is only done, and
+ * the chain only safe to close, once libsox has returned.</p>
+ */
+public final class ChainFuture extends FutureTask<ChainResult> {
+    private static final Logger LOGGER = Logger.getLogger(ChainFuture.class.getName());
+
+    private final SoxEffectsChain chain;
+
+    // guarded by lock
+    private final Object lock = new Object();
+    private boolean started;
+    private boolean cancelRequested;
+    private boolean completing;
+
+    // guarded by listeners
+    private final List<Listener> listeners = new ArrayList<>();
+    private boolean completed;
+
+    ChainFuture(final SoxEffectsChain chain, final FlowListener listener) {
+        super(new Callable<ChainResult>() {
+            private final long submitted = System.nanoTime();
+
+            @Override
+            public ChainResult call() {
+                return chain.flowForResult(listener, System.nanoTime() - submitted);
+            }
+        });
+
+        this.chain = chain;
+    }
+
+    /**
+     * Runs the listener on the executor once the flow is done, or right away if it already is.
+     */
+    public void addListener(Runnable listener, Executor executor) {
+        nonNull(listener, "Listener is required to be specified");
+        nonNull(executor, "Executor is required to be specified");
+
+        synchronized (listeners) {
+            if (!completed) {
+                listeners.add(new Listener(listener, executor));
+                return;
+            }
+        }
+
+        execute(listener, executor);
+    }
+
+    @Override
+    public void run() {
+        synchronized (lock) {
+            if (isDone()) {
+                return;
+            }
+
+            started = true;
+        }
+
+        super.run();
+    }
+
+    /**
+     * A running flow can not be interrupted, it is cancelled at the next buffer of samples whatever
+     * {@code mayInterruptIfRunning} is.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (lock) {
+            if (!started) {
+                return super.cancel(false);
+            }
+
+            if (cancelRequested || completing) {
+                return false;
+            }
+
+            cancelRequested = true;
+        }
+
+        chain.cancel();
+
+        return true;
+    }
+
+    @Override
+    protected void set(ChainResult result) {
+        if (!completeCancelled()) {
+            super.set(result);
+        }
+    }
+
+    @Override
+    protected void setException(Throwable t) {
+        if (!completeCancelled()) {
+            super.setException(t);
+        }
+    }
+
+    /**
+     * Called once the flow has returned, cancels the future instead of completing it if that was requested.
+     */
+    private boolean completeCancelled() {
+        synchronized (lock) {
+            completing = true;
+
+            if (!cancelRequested) {
+                return false;
+            }
+        }
+
+        super.cancel(false);
+
+        return true;
+    }
+
+    @Override
+    protected void done() {
+        List<Listener> toRun;
+
+        synchronized (listeners) {
+            completed = true;
+            toRun = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+
+        for (Listener listener : toRun) {
+            execute(listener.runnable, listener.executor);
+        }
+    }
+
+    private static void execute(Runnable listener, Executor executor) {
+        try {
+            executor.execute(listener);
+        } catch (RuntimeException e) {
+            // the flow is done, there is no one left to rethrow it to
+            LOGGER.log(Level.SEVERE, "Could not run listener " + listener + " on executor " + executor, e);
+        }
+    }
+
+    private static final class Listener {
+        private final Runnable runnable;
+        private final Executor executor;
+
+        private Listener(Runnable runnable, Executor executor) {
+            this.runnable = runnable;
+            this.executor = executor;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.jna.JavaEffectHandler;
+import com.sun.jna.CallbackReference;
+import com.sun.jna.Function;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures the effects of a chain by pointing the flow and drain of every effect (and every channel of effects that
+ * libsox runs once per channel) to a Java callback, which times the original native function and counts the samples
+ * it consumed and produced. Clips are read from the effects themselves.
+ *
+ * <p>Only installed on chains given a {@link ChainMetrics}, other chains call their effects directly. Callbacks
+ * must stay reachable as long as the chain.</p>
+ */
+final class ChainInstrumentation {
+    private static final Logger LOGGER = Logger.getLogger(ChainInstrumentation.class.getName());
+
+    private final ChainMetrics metrics;
+    private final Stage[] stages;
+
+    private ChainInstrumentation(ChainMetrics metrics, Stage[] stages) {
+        this.metrics = metrics;
+        this.stages = stages;
+    }
+
+    /**
+     * Has to be called once all the effects have been added, libsox copies effects when adding them.
+     */
+    static ChainInstrumentation install(Pointer chain, ChainMetrics metrics) {
+        Pointer effects = chain.getPointer(StructLayout.CHAIN_EFFECTS);
+        Stage[] stages = new Stage[(int) getSize(chain, StructLayout.CHAIN_LENGTH)];
+
+        for (int i = 0; i < stages.length; i++) {
+            Pointer effect = effects.getPointer((long) i * Native.POINTER_SIZE);
+            Pointer handler = effect.share(StructLayout.EFFECT_HANDLER);
+            Probe[] probes = new Probe[(int) getSize(effect, StructLayout.EFFECT_FLOWS)];
+
+            for (int f = 0; f < probes.length; f++) {
+                probes[f] = new Probe(effect.share((long) f * StructLayout.EFFECT_SIZE));
+            }
+
+            stages[i] = new Stage(handler.getPointer(StructLayout.HANDLER_NAME).getString(0), probes);
+        }
+
+        return new ChainInstrumentation(metrics, stages);
+    }
+
+    /**
+     * Reports what was measured since the last call. Called once the flow is over, failed or not, so a failure to
+     * record is logged rather than thrown in place of the outcome of the flow.
+     */
+    void publish() {
+        for (int i = 0; i < stages.length; i++) {
+            Stage stage = stages[i];
+            long nanos = 0;
+            long samplesIn = 0;
+            long samplesOut = 0;
+            long clips = 0;
+
+            for (Probe probe : stage.probes) {
+                nanos += probe.nanos.getAndSet(0);
+                samplesIn += probe.samplesIn.getAndSet(0);
+                samplesOut += probe.samplesOut.getAndSet(0);
+                clips += probe.effect.getLong(StructLayout.EFFECT_CLIPS);
+            }
+
+            try {
+                metrics.record(i, stage.name, nanos, samplesIn, samplesOut, clips - stage.clips);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Could not record stage " + i + " (" + stage.name + ") to " + metrics, e);
+            }
+            stage.clips = clips;
+        }
+    }
+
+    private static long getSize(Pointer p, long offset) {
+        return Native.SIZE_T_SIZE == 8 ? p.getLong(offset) : p.getInt(offset);
+    }
+
+    private static final class Stage {
+        private final String name;
+        private final Probe[] probes;
+        private long clips;
+
+        private Stage(String name, Probe[] probes) {
+            this.name = name;
+            this.probes = probes;
+        }
+    }
+
+    /**
+     * Wraps one copy of an effect. libsox may call the handler of one copy for all the channels of an effect, in
+     * parallel when {@code use_threads} is on (see {@link SoxGlobals.Builder#useThreads(boolean)}), so arguments are
+     * passed in a new array on every call and the counters are atomic.
+     */
+    private static final class Probe {
+        private final Pointer effect;
+        private final Function flow;
+        private final Function drain;
+
+        private final JavaEffectHandler.Flow flowCallback = new JavaEffectHandler.Flow() {
+            @Override
+            public int apply(Pointer effp, Pointer ibuf, Pointer obuf, Pointer isamp, Pointer osamp) {
+                return flow(effp, ibuf, obuf, isamp, osamp);
+            }
+        };
+
+        private final JavaEffectHandler.Drain drainCallback = new JavaEffectHandler.Drain() {
+            @Override
+            public int apply(Pointer effp, Pointer obuf, Pointer osamp) {
+                return drain(effp, obuf, osamp);
+            }
+        };
+
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong samplesIn = new AtomicLong();
+        private final AtomicLong samplesOut = new AtomicLong();
+
+        private Probe(Pointer effect) {
+            this.effect = effect;
+
+            Pointer handler = effect.share(StructLayout.EFFECT_HANDLER);
+            Pointer flow = handler.getPointer(StructLayout.HANDLER_FLOW);
+            Pointer drain = handler.getPointer(StructLayout.HANDLER_DRAIN);
+
+            this.flow = flow != null ? Function.getFunction(flow) : null;
+            this.drain = drain != null ? Function.getFunction(drain) : null;
+
+            if (flow != null) {
+                handler.setPointer(StructLayout.HANDLER_FLOW, CallbackReference.getFunctionPointer(flowCallback));
+            }
+            if (drain != null) {
+                handler.setPointer(StructLayout.HANDLER_DRAIN, CallbackReference.getFunctionPointer(drainCallback));
+            }
+        }
+
+        private int flow(Pointer effp, Pointer ibuf, Pointer obuf, Pointer isamp, Pointer osamp) {
+            long start = System.nanoTime();
+            int result = flow.invokeInt(new Object[] { effp, ibuf, obuf, isamp, osamp });
+            nanos.addAndGet(System.nanoTime() - start);
+
+            samplesIn.addAndGet(getSize(isamp, 0));
+            samplesOut.addAndGet(getSize(osamp, 0));
+
+            return result;
+        }
+
+        private int drain(Pointer effp, Pointer obuf, Pointer osamp) {
+            long start = System.nanoTime();
+            int result = drain.invokeInt(new Object[] { effp, obuf, osamp });
+            nanos.addAndGet(System.nanoTime() - start);
+
+            samplesOut.addAndGet(getSize(osamp, 0));
+
+            return result;
+        }
+    }
+}
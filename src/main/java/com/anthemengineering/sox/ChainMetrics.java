@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+/**
+ * Receives the measurements of every stage of an instrumented {@link SoxEffectsChain} (see
+ * {@link SoxEffectsChain#instrument(ChainMetrics)}), to be forwarded to timers and counters of a metrics library.
+ *
+ * <p>Called on the flowing thread once per stage after every flow, including flows that failed or were cancelled.
+ * Values cover that flow only. Exceptions thrown by {@link #record} are logged, they do not fail the flow.</p>
+ */
+public interface ChainMetrics {
+    /**
+     * @param stage      position of the effect in the chain: 0 is the input, which reads and decodes the source, and
+     *                   the last stage is the output, which encodes to the sink.
+     * @param effect     the name of the effect.
+     * @param nanos      wall time spent in the flow and drain of the effect, summed over its channels when libsox
+     *                   runs it once per channel.
+     * @param samplesIn  the number of samples (all channels) the effect consumed.
+     * @param samplesOut the number of samples (all channels) the effect produced.
+     * @param clips      the number of samples the effect clipped.
+     */
+    void record(int stage, String effect, long nanos, long samplesIn, long samplesOut, long clips);
+}
@@ -0,0 +1,65 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a flow of a {@link SoxEffectsChain} produced (see
+ * {@link SoxEffectsChain#flowEffectsAsync(java.util.concurrent.Executor)}).
+ */
+public final class ChainResult {
+    private final long outputSamples;
+    private final long clips;
+    private final long queuedNanos;
+    private final long flowNanos;
+
+    ChainResult(long outputSamples, long clips, long queuedNanos, long flowNanos) {
+        this.outputSamples = outputSamples;
+        this.clips = clips;
+        this.queuedNanos = queuedNanos;
+        this.flowNanos = flowNanos;
+    }
+
+    /**
+     * @return the number of samples (all channels) written to the sink.
+     */
+    public long getOutputSamples() {
+        return outputSamples;
+    }
+
+    /**
+     * @return the number of samples clipped by the effects of the chain.
+     */
+    public long getClips() {
+        return clips;
+    }
+
+    /**
+     * @return the time between submitting the flow and the executor starting it.
+     */
+    public long getQueuedTime(TimeUnit unit) {
+        return unit.convert(queuedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the time the flow took.
+     */
+    public long getFlowTime(TimeUnit unit) {
+        return unit.convert(flowNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.format.SoxSink;
+import com.anthemengineering.sox.format.SoxSource;
+import com.anthemengineering.sox.jna.sox_effect_handler_t;
+import com.anthemengineering.sox.jna.sox_effect_t;
+import com.sun.jna.Pointer;
+import com.sun.jna.StringArray;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.anthemengineering.sox.ValidationUtil.nonNull;
+
+/**
+ * A compiled list of effects (see {@link SoxEffectsChain.Builder#compile()}) that can be instantiated against any
+ * number of sources and sinks, from any thread.
+ *
+ * <p>Handlers are looked up (see {@link SoxHandlers}) and options are marshalled to native strings and validated
+ * once, when compiling. libsox keeps the options of an effect in memory private to each instance, so they are still
+ * parsed for every chain, but from the native copy.</p>
+ */
+public final class ChainTemplate {
+    private final List<CompiledEffect> effects;
+    private final boolean sharesFftTables;
+
+    private ChainTemplate(List<CompiledEffect> effects, boolean sharesFftTables) {
+        this.effects = effects;
+        this.sharesFftTables = sharesFftTables;
+    }
+
+    static ChainTemplate compile(List<SoxEffectsChain.Builder.Effect> effects) {
+        List<CompiledEffect> compiled = new ArrayList<>(effects.size());
+        boolean sharesFftTables = false;
+
+        for (SoxEffectsChain.Builder.Effect effect : effects) {
+            if (effect.javaEffect != null) {
+                throw new SoxException("Java effects can not be compiled into a template: " + effect.name);
+            }
+
+            CompiledEffect compiledEffect = new CompiledEffect(effect.name, effect.options);
+            compiledEffect.validate();
+
+            compiled.add(compiledEffect);
+            sharesFftTables |= NativeLocks.sharesFftTables(effect.name);
+        }
+
+        return new ChainTemplate(Collections.unmodifiableList(compiled), sharesFftTables);
+    }
+
+    public SoxEffectsChain instantiate(SoxSource source, SoxSink sink) {
+        nonNull(source, "Source is required to be specified");
+        nonNull(sink, "Sink is required to be specified");
+
+        Formats.beforeOpen(source);
+        Formats.beforeOpen(sink);
+
+        if (sharesFftTables) {
+            synchronized (NativeLocks.FFT) {
+                return build(source, sink);
+            }
+        }
+
+        return build(source, sink);
+    }
+
+    private SoxEffectsChain build(SoxSource source, SoxSink sink) {
+        synchronized (NativeLocks.FORMATS) {
+            SoxEffectsChain chain = new SoxEffectsChain(source, sink, sharesFftTables, this);
+
+            try {
+                chain.addInputEffect();
+                for (CompiledEffect effect : effects) {
+                    chain.addEffect(effect);
+                }
+                chain.addOutputEffect();
+            } catch (RuntimeException | Error e) {
+                chain.closeAfterFailure(e);
+                throw e;
+            }
+
+            return chain;
+        }
+    }
+
+    static final class CompiledEffect {
+        private final String name;
+        private final sox_effect_handler_t handler;
+        private final int argc;
+        private final Pointer argv;
+
+        private CompiledEffect(String name, String[] options) {
+            this.name = name;
+            this.handler = SoxHandlers.effect(name);
+            this.argc = options.length;
+            this.argv = options.length > 0 ? new StringArray(options) : null;
+        }
+
+        sox_effect_t create() {
+            return Sox.createEffect(handler, name, argc, argv);
+        }
+
+        private void validate() {
+            synchronized (NativeLocks.FORMATS) {
+                Sox.deleteEffect(create());
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.anthemengineering.sox.ValidationUtil.nonNull;
+import static com.anthemengineering.sox.ValidationUtil.positiveNumber;
+
+/**
+ * Reuses direct buffers, which are otherwise only freed once the garbage collector notices them, so that bursts of
+ * short jobs do not run into {@code -XX:MaxDirectMemorySize}.
+ *
+ * <p>Requests are rounded up to a power of two (at least {@link #MIN_BLOCK_SIZE}) and served from a free list per
+ * size. Requests over the maximum block size are allocated as asked and never kept. Released blocks are kept up to a
+ * total number of bytes, past which they are left to the garbage collector.</p>
+ *
+ * <p>A block must be released exactly once, and not used after that.</p>
+ */
+public final class DirectBufferPool {
+    public static final int MIN_BLOCK_SIZE = 4096;
+    public static final int DEFAULT_MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+    public static final long DEFAULT_MAX_RETAINED_BYTES = 256L * 1024 * 1024;
+
+    private static final DirectBufferPool SHARED = new DirectBufferPool(DEFAULT_MAX_BLOCK_SIZE,
+            DEFAULT_MAX_RETAINED_BYTES);
+
+    private final int maxBlockSize;
+    private final long maxRetainedBytes;
+    private final List<Queue<ByteBuffer>> free = new ArrayList<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong outstandingBytes = new AtomicLong();
+    private final AtomicLong retainedBytes = new AtomicLong();
+
+    /**
+     * @param maxBlockSize     the largest block kept for reuse, rounded up to a power of two.
+     * @param maxRetainedBytes the most bytes kept in free blocks at any time.
+     */
+    public DirectBufferPool(int maxBlockSize, long maxRetainedBytes) {
+        this.maxBlockSize = blockSize((int) positiveNumber(maxBlockSize, "Max block size must be positive"));
+        this.maxRetainedBytes = maxRetainedBytes;
+
+        for (int size = MIN_BLOCK_SIZE; size > 0 && size <= this.maxBlockSize; size <<= 1) {
+            free.add(new ConcurrentLinkedQueue<ByteBuffer>());
+        }
+    }
+
+    /**
+     * @return the pool used for the staging buffers of {@link SoxSampleReader} and {@link SoxSampleWriter}.
+     */
+    public static DirectBufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return a direct buffer positioned at 0 with its limit at {@code size}; its capacity may be larger.
+     */
+    public ByteBuffer acquire(int size) {
+        positiveNumber(size, "Size must be positive");
+
+        ByteBuffer buffer = null;
+        int capacity = size;
+
+        if (size <= maxBlockSize) {
+            capacity = blockSize(size);
+            buffer = free.get(index(capacity)).poll();
+        }
+
+        if (buffer != null) {
+            hits.incrementAndGet();
+            retainedBytes.addAndGet(-capacity);
+        } else {
+            misses.incrementAndGet();
+            buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        outstandingBytes.addAndGet(capacity);
+        buffer.limit(size);
+
+        return buffer;
+    }
+
+    /**
+     * Returns a block obtained from {@link #acquire(int)}.
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = nonNull(buffer, "Buffer is required to be specified").capacity();
+        outstandingBytes.addAndGet(-capacity);
+
+        if (!isPooled(capacity)) {
+            return;
+        }
+
+        if (retainedBytes.addAndGet(capacity) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-capacity);
+            return;
+        }
+
+        buffer.clear();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        free.get(index(capacity)).offer(buffer);
+    }
+
+    /**
+     * @return the number of requests served from a free block.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests that allocated a new buffer.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the capacity of the blocks acquired and not released yet.
+     */
+    public long getOutstandingBytes() {
+        return outstandingBytes.get();
+    }
+
+    /**
+     * @return the capacity of the free blocks kept for reuse.
+     */
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    private boolean isPooled(int capacity) {
+        return capacity >= MIN_BLOCK_SIZE && capacity <= maxBlockSize && Integer.bitCount(capacity) == 1;
+    }
+
+    private static int blockSize(int size) {
+        if (size <= MIN_BLOCK_SIZE) {
+            return MIN_BLOCK_SIZE;
+        }
+
+        int block = Integer.highestOneBit(size - 1) << 1;
+
+        return block > 0 ? block : Integer.highestOneBit(Integer.MAX_VALUE);
+    }
+
+    private static int index(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity) - Integer.numberOfTrailingZeros(MIN_BLOCK_SIZE);
+    }
+}
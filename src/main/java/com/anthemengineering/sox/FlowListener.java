@@ -0,0 +1,29 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+/**
+ * Progress of {@link SoxEffectsChain#flowEffects(FlowListener)}, called on the flowing thread.
+ */
+public interface FlowListener {
+    /**
+     * @param samples the number of samples (all channels) written to the sink so far.
+     * @param done true once the input has been exhausted.
+     * @return false to stop the flow, which then fails with a {@link SoxCancelledException}.
+     */
+    boolean onProgress(long samples, boolean done);
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.format.FormatLifecycle;
+import com.anthemengineering.sox.jna.sox_format_t;
+
+final class Formats {
+    private Formats() {}
+
+    /**
+     * Lets a {@link com.anthemengineering.sox.format.SoxSource} or {@link com.anthemengineering.sox.format.SoxSink}
+     * that is a {@link FormatLifecycle} get ready to be created; called before taking {@link NativeLocks#FORMATS}.
+     */
+    static void beforeOpen(Object creator) {
+        if (creator instanceof FormatLifecycle) {
+            ((FormatLifecycle) creator).beforeOpen();
+        }
+    }
+
+    /**
+     * Closes a format created by a {@link com.anthemengineering.sox.format.SoxSource} or
+     * {@link com.anthemengineering.sox.format.SoxSink}, notifying it if it is a {@link FormatLifecycle}.
+     */
+    static void close(Object creator, sox_format_t format) {
+        FormatLifecycle lifecycle = creator instanceof FormatLifecycle ? (FormatLifecycle) creator : null;
+
+        if (lifecycle == null) {
+            synchronized (NativeLocks.FORMATS) {
+                Sox.close(format);
+            }
+            return;
+        }
+
+        // the hooks may do I/O, only libsox itself needs the lock
+        try {
+            lifecycle.beforeClose(format);
+        } finally {
+            try {
+                synchronized (NativeLocks.FORMATS) {
+                    Sox.close(format);
+                }
+            } finally {
+                lifecycle.afterClose();
+            }
+        }
+    }
+}
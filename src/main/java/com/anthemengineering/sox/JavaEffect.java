@@ -0,0 +1,245 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.jna.JavaEffectHandler;
+import com.anthemengineering.sox.jna.SoxLibrary;
+import com.anthemengineering.sox.jna.sox_signalinfo_t;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.anthemengineering.sox.ValidationUtil.nonNull;
+import static com.anthemengineering.sox.jna.SoxLibrary.sox_error_t.SOX_EOF;
+import static com.anthemengineering.sox.jna.SoxLibrary.sox_error_t.SOX_SUCCESS;
+
+/**
+ * An effect implemented in Java, that can sit anywhere between native effects of a chain (see
+ * {@link SoxEffectsChain.Builder#effect(JavaEffect)}).
+ *
+ * <p>{@link #flow(IntBuffer, IntBuffer)} and {@link #drain(IntBuffer)} are handed views over libsox's own buffers
+ * of interleaved {@code sox_sample_t}s, nothing is copied. The views are only valid for the duration of the call.
+ * The effect does not change the signal: the output has the rate and channels given to {@link #start(double, int)}.
+ * </p>
+ *
+ * <p>An instance holds the state of one effect, so it can only be part of one chain at a time. Exceptions thrown by
+ * the callbacks stop the flow and are rethrown by {@link SoxEffectsChain#flowEffects()}.</p>
+ */
+public abstract class JavaEffect {
+    private static final IntBuffer EMPTY = IntBuffer.allocate(0);
+
+    private final String name;
+    private final Memory nativeName;
+    private final Memory usage;
+    private final JavaEffectHandler handler;
+
+    // libsox copies the handler into every effect it creates, these must stay reachable as long as this effect
+    private final JavaEffectHandler.Lifecycle startCallback = new JavaEffectHandler.Lifecycle() {
+        @Override
+        public int apply(Pointer effp) {
+            failure = null;
+
+            try {
+                sox_signalinfo_t signal = new sox_signalinfo_t(effp.share(StructLayout.EFFECT_IN_SIGNAL));
+                signal.read();
+                start(signal.rate, signal.channels);
+
+                return SOX_SUCCESS;
+            } catch (Throwable t) {
+                failure = t;
+                return SOX_EOF;
+            }
+        }
+    };
+
+    private final JavaEffectHandler.Flow flowCallback = new JavaEffectHandler.Flow() {
+        @Override
+        public int apply(Pointer effp, Pointer ibuf, Pointer obuf, Pointer isamp, Pointer osamp) {
+            try {
+                IntBuffer in = input.of(ibuf, getSize(isamp));
+                IntBuffer out = output.of(obuf, getSize(osamp));
+                flow(in, out);
+
+                setSize(isamp, in.position());
+                setSize(osamp, out.position());
+
+                return SOX_SUCCESS;
+            } catch (Throwable t) {
+                failure = t;
+                setSize(isamp, 0);
+                setSize(osamp, 0);
+
+                return SOX_EOF;
+            }
+        }
+    };
+
+    private final JavaEffectHandler.Drain drainCallback = new JavaEffectHandler.Drain() {
+        @Override
+        public int apply(Pointer effp, Pointer obuf, Pointer osamp) {
+            try {
+                IntBuffer out = output.of(obuf, getSize(osamp));
+                drain(out);
+                setSize(osamp, out.position());
+
+                return out.position() > 0 ? SOX_SUCCESS : SOX_EOF;
+            } catch (Throwable t) {
+                failure = t;
+                setSize(osamp, 0);
+
+                return SOX_EOF;
+            }
+        }
+    };
+
+    private final JavaEffectHandler.Lifecycle stopCallback = new JavaEffectHandler.Lifecycle() {
+        @Override
+        public int apply(Pointer effp) {
+            try {
+                stop();
+            } catch (Throwable t) {
+                failure = t;
+            }
+
+            return SOX_SUCCESS;
+        }
+    };
+
+    private final View input = new View();
+    private final View output = new View();
+
+    private volatile Throwable failure;
+
+    protected JavaEffect(String name) {
+        this.name = nonNull(name, "Name is required to be specified");
+
+        byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+        this.nativeName = new Memory(bytes.length + 1);
+        this.nativeName.write(0, bytes, 0, bytes.length);
+        this.nativeName.setByte(bytes.length, (byte) 0);
+        this.usage = new Memory(1);
+        this.usage.setByte(0, (byte) 0);
+
+        this.handler = new JavaEffectHandler();
+        this.handler.name = nativeName;
+        this.handler.usage = usage;
+        // one flow over interleaved samples rather than one per channel
+        this.handler.flags = SoxLibrary.SOX_EFF_MCHAN;
+        this.handler.start = startCallback;
+        this.handler.flow = flowCallback;
+        this.handler.drain = drainCallback;
+        this.handler.stop = stopCallback;
+        this.handler.write();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Called when the effect is added to a chain.
+     */
+    protected void start(double rate, int channels) {
+        // no op
+    }
+
+    /**
+     * Processes interleaved samples.
+     *
+     * @param in  the samples to process. Samples not consumed (left after the position) are passed again on the
+     *            next call.
+     * @param out where to put the processed samples, up to its limit. Its position has to be advanced by the number
+     *            of samples produced.
+     */
+    protected abstract void flow(IntBuffer in, IntBuffer out);
+
+    /**
+     * Called once the input is exhausted, until nothing more is produced.
+     *
+     * @param out where to put the remaining samples, nothing by default.
+     */
+    protected void drain(IntBuffer out) {
+        // no op
+    }
+
+    /**
+     * Called when the chain is closed.
+     */
+    protected void stop() {
+        // no op
+    }
+
+    JavaEffectHandler getHandler() {
+        return handler;
+    }
+
+    void rethrowFailure() {
+        Throwable t = failure;
+        failure = null;
+
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new SoxException("Java effect " + name + " failed", t);
+        }
+    }
+
+    private static long getSize(Pointer p) {
+        return Native.SIZE_T_SIZE == 8 ? p.getLong(0) : p.getInt(0);
+    }
+
+    private static void setSize(Pointer p, long size) {
+        if (Native.SIZE_T_SIZE == 8) {
+            p.setLong(0, size);
+        } else {
+            p.setInt(0, (int) size);
+        }
+    }
+
+    /**
+     * Reuses the view over a native buffer as long as libsox passes the same one, which it does for the output.
+     */
+    private static final class View {
+        private long address;
+        private int capacity;
+        private IntBuffer buffer = EMPTY;
+
+        IntBuffer of(Pointer p, long samples) {
+            if (p == null || samples == 0) {
+                return EMPTY;
+            }
+
+            long a = Pointer.nativeValue(p);
+            if (a != address || samples > capacity) {
+                buffer = p.getByteBuffer(0, samples * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+                address = a;
+                capacity = (int) samples;
+            }
+
+            buffer.clear();
+            buffer.limit((int) samples);
+
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.jna.SoxLibrary;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.anthemengineering.sox.jna.SoxLibrary.sox_version_flags_t.sox_version_have_threads;
+
+/**
+ * The locks behind the concurrency model described on {@link SoxExecutor}.
+ */
+final class NativeLocks {
+    /**
+     * Held while formats are opened or closed and while effects are created and started: format handlers and effects
+     * lazily initialize shared tables and codec libraries there.
+     */
+    static final Object FORMATS = new Object();
+
+    /**
+     * Held while chains using effects that share libsox's FFT tables are built and flowed. libsox only synchronizes
+     * those tables when it is built with OpenMP.
+     */
+    static final Object FFT = new Object();
+
+    private static final Set<String> FFT_EFFECTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "rate",
+            "sinc",
+            "fir",
+            "loudness",
+            "noiseprof",
+            "noisered",
+            "spectrogram",
+            "stat")));
+
+    private static final boolean FFT_SYNCHRONIZED =
+            (SoxLibrary.INSTANCE.sox_version_info().flags & sox_version_have_threads) != 0;
+
+    // chains, readers and writers holding native buffers sized from the globals, see SoxGlobals
+    private static final AtomicInteger OPEN = new AtomicInteger();
+
+    private NativeLocks() {}
+
+    static boolean sharesFftTables(String effectName) {
+        return !FFT_SYNCHRONIZED && FFT_EFFECTS.contains(effectName);
+    }
+
+    /**
+     * @return true if libsox was built with OpenMP, which {@code use_threads} and FFT table synchronization need.
+     */
+    static boolean hasThreads() {
+        return FFT_SYNCHRONIZED;
+    }
+
+    /**
+     * Counts a chain, reader or writer as open; called holding {@link #FORMATS}.
+     */
+    static void opened() {
+        OPEN.incrementAndGet();
+    }
+
+    static void closed() {
+        OPEN.decrementAndGet();
+    }
+
+    static int open() {
+        return OPEN.get();
+    }
+}
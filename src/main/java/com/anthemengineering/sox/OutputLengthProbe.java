@@ -0,0 +1,92 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.jna.CLibrary;
+import com.anthemengineering.sox.jna.JavaFormatHandler;
+import com.anthemengineering.sox.jna.sox_format_t;
+import com.sun.jna.CallbackReference;
+import com.sun.jna.Function;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+
+/**
+ * Measures the stream written by a format once its handler has finished it, for sinks writing to memory that need
+ * to know how much of their buffer is output.
+ *
+ * <p>libsox closes a format by letting its handler finish the stream ({@code stopwrite}: trailers, last blocks,
+ * padding, headers rewritten in place) and then closing the file, after which nothing can be measured. The probe
+ * points the {@code stopwrite} of the format's own copy of its handler to a Java callback, which calls the original
+ * one and then seeks to the end of the stream to find its length. The format has to be opened for writing, and the
+ * probe kept reachable until the format is closed.</p>
+ */
+public final class OutputLengthProbe {
+    private final Function stopwrite;
+    private volatile long length = -1;
+
+    private final JavaFormatHandler.Stop callback = new JavaFormatHandler.Stop() {
+        @Override
+        public int apply(Pointer ft) {
+            return stopwrite(ft);
+        }
+    };
+
+    private OutputLengthProbe(Function stopwrite) {
+        this.stopwrite = stopwrite;
+    }
+
+    /**
+     * @param format a format opened for writing.
+     * @return the probe, or {@code null} if the handler has nothing to write on close (libsox then does not touch the
+     * stream until it closes it).
+     */
+    public static OutputLengthProbe install(sox_format_t format) {
+        Pointer ft = format.getPointer();
+        Pointer original = ft.getPointer(StructLayout.FORMAT_HANDLER_STOPWRITE);
+
+        if (original == null) {
+            return null;
+        }
+
+        OutputLengthProbe probe = new OutputLengthProbe(Function.getFunction(original));
+        ft.setPointer(StructLayout.FORMAT_HANDLER_STOPWRITE, CallbackReference.getFunctionPointer(probe.callback));
+        // the proxy mapping would otherwise write the original handler back when the format is passed to it
+        format.setAutoWrite(false);
+
+        return probe;
+    }
+
+    /**
+     * @return the length of the stream once the handler has finished it, -1 if it has not been called (libsox skips
+     * it for formats whose header is already right) or the stream can not be measured.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    private int stopwrite(Pointer ft) {
+        int result = stopwrite.invokeInt(new Object[] { ft });
+        Pointer fp = ft.getPointer(StructLayout.FORMAT_FP);
+
+        // the handler may have sought back to patch a header, the end is the furthest byte written
+        if (fp != null && CLibrary.INSTANCE.fseeko(fp, new NativeLong(0), CLibrary.SEEK_END) == 0) {
+            length = CLibrary.INSTANCE.ftello(fp).longValue();
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Bulk conversions between 32-bit {@code sox_sample_t}s and normalized floats and doubles in [-1, 1) or 16-bit
+ * samples.
+ *
+ * <p>The array methods are plain counted loops without branches or calls that are not inlined, which C2 compiles to
+ * SIMD instructions. The buffer methods use them when both buffers are backed by arrays, and fall back to absolute
+ * gets and puts otherwise (direct or read-only buffers). They convert as many samples as both buffers have remaining
+ * and advance both positions.</p>
+ *
+ * <p>Conversions to narrower types round to nearest and saturate, like libsox; they return the number of samples
+ * that had to be clipped. A float or double of exactly 1 becomes {@link Integer#MAX_VALUE} without counting as a
+ * clip.</p>
+ */
+public final class SampleConverter {
+    private static final float TO_FLOAT = 1f / 2147483648f;
+    private static final double TO_DOUBLE = 1.0 / 2147483648.0;
+    private static final double FROM_UNIT = 2147483648.0;
+
+    private SampleConverter() {}
+
+    public static void toFloat(int[] src, int srcOffset, float[] dst, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = toFloat(src[srcOffset + i]);
+        }
+    }
+
+    public static void toDouble(int[] src, int srcOffset, double[] dst, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = toDouble(src[srcOffset + i]);
+        }
+    }
+
+    /**
+     * @return the number of samples clipped.
+     */
+    public static int toShort(int[] src, int srcOffset, short[] dst, int dstOffset, int length) {
+        int clips = 0;
+
+        for (int i = 0; i < length; i++) {
+            int rounded = roundTo16(src[srcOffset + i]);
+            clips += isClipped16(rounded);
+            dst[dstOffset + i] = (short) Math.min(rounded, Short.MAX_VALUE);
+        }
+
+        return clips;
+    }
+
+    /**
+     * @return the number of samples outside of [-1, 1], which were clipped.
+     */
+    public static int fromFloat(float[] src, int srcOffset, int[] dst, int dstOffset, int length) {
+        int clips = 0;
+
+        for (int i = 0; i < length; i++) {
+            float sample = src[srcOffset + i];
+            clips += isClipped(sample);
+            dst[dstOffset + i] = fromUnit(sample);
+        }
+
+        return clips;
+    }
+
+    /**
+     * @return the number of samples outside of [-1, 1], which were clipped.
+     */
+    public static int fromDouble(double[] src, int srcOffset, int[] dst, int dstOffset, int length) {
+        int clips = 0;
+
+        for (int i = 0; i < length; i++) {
+            double sample = src[srcOffset + i];
+            clips += isClipped(sample);
+            dst[dstOffset + i] = fromUnit(sample);
+        }
+
+        return clips;
+    }
+
+    public static void fromShort(short[] src, int srcOffset, int[] dst, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = src[srcOffset + i] << 16;
+        }
+    }
+
+    public static void toFloat(IntBuffer src, FloatBuffer dst) {
+        int length = Math.min(src.remaining(), dst.remaining());
+        int s = src.position();
+        int d = dst.position();
+
+        if (src.hasArray() && dst.hasArray()) {
+            toFloat(src.array(), src.arrayOffset() + s, dst.array(), dst.arrayOffset() + d, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dst.put(d + i, toFloat(src.get(s + i)));
+            }
+        }
+
+        src.position(s + length);
+        dst.position(d + length);
+    }
+
+    public static void toDouble(IntBuffer src, DoubleBuffer dst) {
+        int length = Math.min(src.remaining(), dst.remaining());
+        int s = src.position();
+        int d = dst.position();
+
+        if (src.hasArray() && dst.hasArray()) {
+            toDouble(src.array(), src.arrayOffset() + s, dst.array(), dst.arrayOffset() + d, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dst.put(d + i, toDouble(src.get(s + i)));
+            }
+        }
+
+        src.position(s + length);
+        dst.position(d + length);
+    }
+
+    /**
+     * @return the number of samples clipped.
+     */
+    public static int toShort(IntBuffer src, ShortBuffer dst) {
+        int length = Math.min(src.remaining(), dst.remaining());
+        int s = src.position();
+        int d = dst.position();
+        int clips = 0;
+
+        if (src.hasArray() && dst.hasArray()) {
+            clips = toShort(src.array(), src.arrayOffset() + s, dst.array(), dst.arrayOffset() + d, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                int rounded = roundTo16(src.get(s + i));
+                clips += isClipped16(rounded);
+                dst.put(d + i, (short) Math.min(rounded, Short.MAX_VALUE));
+            }
+        }
+
+        src.position(s + length);
+        dst.position(d + length);
+
+        return clips;
+    }
+
+    /**
+     * @return the number of samples outside of [-1, 1], which were clipped.
+     */
+    public static int fromFloat(FloatBuffer src, IntBuffer dst) {
+        int length = Math.min(src.remaining(), dst.remaining());
+        int s = src.position();
+        int d = dst.position();
+        int clips = 0;
+
+        if (src.hasArray() && dst.hasArray()) {
+            clips = fromFloat(src.array(), src.arrayOffset() + s, dst.array(), dst.arrayOffset() + d, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                float sample = src.get(s + i);
+                clips += isClipped(sample);
+                dst.put(d + i, fromUnit(sample));
+            }
+        }
+
+        src.position(s + length);
+        dst.position(d + length);
+
+        return clips;
+    }
+
+    /**
+     * @return the number of samples outside of [-1, 1], which were clipped.
+     */
+    public static int fromDouble(DoubleBuffer src, IntBuffer dst) {
+        int length = Math.min(src.remaining(), dst.remaining());
+        int s = src.position();
+        int d = dst.position();
+        int clips = 0;
+
+        if (src.hasArray() && dst.hasArray()) {
+            clips = fromDouble(src.array(), src.arrayOffset() + s, dst.array(), dst.arrayOffset() + d, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                double sample = src.get(s + i);
+                clips += isClipped(sample);
+                dst.put(d + i, fromUnit(sample));
+            }
+        }
+
+        src.position(s + length);
+        dst.position(d + length);
+
+        return clips;
+    }
+
+    public static void fromShort(ShortBuffer src, IntBuffer dst) {
+        int length = Math.min(src.remaining(), dst.remaining());
+        int s = src.position();
+        int d = dst.position();
+
+        if (src.hasArray() && dst.hasArray()) {
+            fromShort(src.array(), src.arrayOffset() + s, dst.array(), dst.arrayOffset() + d, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dst.put(d + i, src.get(s + i) << 16);
+            }
+        }
+
+        src.position(s + length);
+        dst.position(d + length);
+    }
+
+    private static float toFloat(int sample) {
+        return sample * TO_FLOAT;
+    }
+
+    private static double toDouble(int sample) {
+        return sample * TO_DOUBLE;
+    }
+
+    /**
+     * @return the sample rounded half up to 16 bits, 32768 if it no longer fits.
+     */
+    private static int roundTo16(int sample) {
+        return (sample >> 16) + ((sample >>> 15) & 1);
+    }
+
+    private static int isClipped16(int rounded) {
+        return (rounded + 32768) >>> 16;
+    }
+
+    /**
+     * Narrowing a double to an int saturates, which does the clipping.
+     */
+    private static int fromUnit(double sample) {
+        return (int) Math.rint(sample * FROM_UNIT);
+    }
+
+    private static int isClipped(double sample) {
+        return Math.abs(sample) > 1.0 ? 1 : 0;
+    }
+}
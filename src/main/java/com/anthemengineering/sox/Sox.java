@@ -17,15 +17,33 @@
 package com.anthemengineering.sox;
 
 import com.anthemengineering.sox.jna.*;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
 import com.sun.jna.Pointer;
+import com.sun.jna.StringArray;
+import com.sun.jna.ptr.PointerByReference;
+
+import java.nio.IntBuffer;
 
 import static com.anthemengineering.sox.jna.SoxLibrary.sox_error_t.SOX_SUCCESS;
 
+/**
+ * Thin wrappers over the libsox client API that turn error codes into {@link SoxException}s.
+ *
+ * <p>When {@link SoxDirect#isAvailable()} the per-block and per-effect calls ({@link #read}, {@link #write},
+ * {@link #addEffect}, effect options, {@link #flowEffects}, {@link #effectsClips}, {@link #deleteEffectsChain},
+ * {@link #deleteEffect} and {@link #close}) go through the direct mapping and do not synchronize the Java fields of
+ * the structures they are given. Call {@link com.sun.jna.Structure#read()} before inspecting a chain or format that
+ * has been passed to one of them.</p>
+ */
 public final class Sox {
     static {
         SoxLibManagement.initialize(); // ensures initialized
     }
 
+    private static final boolean DIRECT = SoxDirect.isAvailable();
+
     private Sox() {
 
     }
@@ -92,8 +110,73 @@ public final class Sox {
         return openWrite(dest, destBufferSize, signal, null, null, null);
     }
 
+    public static sox_format_t openWrite(PointerByReference dest, size_t.ByReference destBufferSize, sox_signalinfo_t signal, sox_encodinginfo_t encoding, String filetype, sox_oob_t oob) {
+        sox_format_t f = SoxLibrary.INSTANCE.sox_open_memstream_write(dest, destBufferSize, signal, encoding, filetype, oob);
+
+        if (f == null) {
+            throw new SoxException("Could not open memory stream for write");
+        }
+
+        return f;
+    }
+
+    /**
+     * Opens a format whose samples are read or written by the Java callbacks of the handler (see
+     * {@link com.anthemengineering.sox.format.SampleSource} and {@link com.anthemengineering.sox.format.SampleSink}).
+     *
+     * <p>libsox has no way of registering format handlers at runtime, so the format is assembled the way
+     * {@code sox_open_read} or {@code sox_open_write} would have, as interleaved 32-bit samples without a file
+     * behind it. It is freed by {@link #close(sox_format_t)} like any other. The returned structure is never written
+     * back as a whole, so the native copy of the handler is left alone.</p>
+     *
+     * @param mode {@code 'r'} or {@code 'w'}.
+     */
+    public static sox_format_t open(JavaFormatHandler handler, char mode, double rate, int channels, int precision) {
+        long peer = Native.malloc(StructLayout.FORMAT_SIZE);
+
+        if (peer == 0) {
+            throw new SoxException("Could not allocate format");
+        }
+
+        Pointer p = new Pointer(peer);
+        p.clear(StructLayout.FORMAT_SIZE);
+
+        sox_format_t f = new sox_format_t(p);
+        f.setAutoWrite(false);
+
+        f.signal.rate = rate;
+        f.signal.channels = channels;
+        f.signal.precision = precision;
+        f.encoding.encoding = SoxLibrary.sox_encoding_t.SOX_ENCODING_SIGN2;
+        f.encoding.bits_per_sample = 32;
+        f.mode = (byte) mode;
+        f.writeField("signal");
+        f.writeField("encoding");
+        f.writeField("mode");
+
+        handler.write();
+        p.write(StructLayout.FORMAT_HANDLER, handler.getPointer().getByteArray(0, handler.size()), 0, handler.size());
+
+        return f;
+    }
+
+    public static long read(sox_format_t format, IntBuffer buffer, size_t length) {
+        return DIRECT
+                ? SoxDirect.sox_read(format.getPointer(), buffer, length).longValue()
+                : SoxLibrary.INSTANCE.sox_read(format, buffer, length).longValue();
+    }
+
+    public static long write(sox_format_t format, IntBuffer buffer, size_t length) {
+        return DIRECT
+                ? SoxDirect.sox_write(format.getPointer(), buffer, length).longValue()
+                : SoxLibrary.INSTANCE.sox_write(format, buffer, length).longValue();
+    }
+
     public static void close(sox_format_t format) {
-        assertSuccess(SoxLibrary.INSTANCE.sox_close(format), "Could not close %1$s: %2$d", format);
+        assertSuccess(
+                DIRECT ? SoxDirect.sox_close(format.getPointer()) : SoxLibrary.INSTANCE.sox_close(format),
+                "Could not close %1$s: %2$d",
+                format);
     }
 
     public static sox_effects_chain_t createEffectsChain(sox_encodinginfo_t inEncoding, sox_encodinginfo_t outEncoding) {
@@ -107,26 +190,51 @@ public final class Sox {
     }
 
     public static void deleteEffectsChain(sox_effects_chain_t chain) {
-        SoxLibrary.INSTANCE.sox_delete_effects_chain(chain);
+        if (DIRECT) {
+            SoxDirect.sox_delete_effects_chain(chain.getPointer());
+        } else {
+            SoxLibrary.INSTANCE.sox_delete_effects_chain(chain);
+        }
     }
 
     public static sox_effect_t createEffect(String name, String... options) {
-        sox_effect_handler_t handler = SoxLibrary.INSTANCE.sox_find_effect(name);
+        sox_effect_t effect = SoxLibrary.INSTANCE.sox_create_effect(SoxHandlers.effect(name));
+
+        if (effect == null) {
+            throw new SoxException("Could not create effects handler for effect with name " + name);
+        }
 
-        if (handler == null) {
-            throw new SoxException("Could not find effects handler with name " + name);
+        int result = effectOptions(effect, options);
+
+        if (result != SOX_SUCCESS) {
+            deleteEffect(effect);
         }
+        assertSuccess(result, "Could not set effects options on effect with name %1$s: %2$d", name);
 
+        return effect;
+    }
+
+    /**
+     * Creates an effect from a handler that was looked up earlier, with options already marshalled to a native
+     * {@code char *argv[]} (see {@link ChainTemplate}).
+     *
+     * @param argv must stay reachable for as long as the effect exists, effects may keep pointers to their options.
+     */
+    public static sox_effect_t createEffect(sox_effect_handler_t handler, String name, int argc, Pointer argv) {
         sox_effect_t effect = SoxLibrary.INSTANCE.sox_create_effect(handler);
 
         if (effect == null) {
             throw new SoxException("Could not create effects handler for effect with name " + name);
         }
 
-        assertSuccess(
-                SoxLibrary.INSTANCE.sox_effect_options(effect, options != null ? options.length : 0, options),
-                "Could not set effects options on effect with name %1$s: %2$d",
-                name);
+        int result = DIRECT
+                ? SoxDirect.sox_effect_options(effect.getPointer(), argc, argv)
+                : SoxLibrary.INSTANCE.sox_effect_options(effect, argc, argc > 0 ? argv.getPointerArray(0, argc) : null);
+
+        if (result != SOX_SUCCESS) {
+            deleteEffect(effect);
+        }
+        assertSuccess(result, "Could not set effects options on effect with name %1$s: %2$d", name);
 
         return effect;
     }
@@ -135,47 +243,85 @@ public final class Sox {
         return createEffect(name, new String[]{});
     }
 
+    /**
+     * Creates an effect from a handler defined in Java (see {@link JavaEffect}). The returned structure is never
+     * synchronized with native memory, libsox fills it in.
+     */
+    public static sox_effect_t createEffect(JavaEffectHandler handler, String name) {
+        Pointer effect = DIRECT
+                ? SoxDirect.sox_create_effect(handler.getPointer())
+                : NativeLibrary.getInstance(SoxLibrary.JNA_LIBRARY_NAME)
+                        .getFunction("sox_create_effect")
+                        .invokePointer(new Object[] { handler.getPointer() });
+
+        if (effect == null) {
+            throw new SoxException("Could not create effects handler for effect with name " + name);
+        }
+
+        sox_effect_t e = new sox_effect_t(effect);
+        e.setAutoSynch(false);
+
+        return e;
+    }
+
+    /**
+     * Frees an effect once it has been added to a chain. The chain works on a copy of it, sharing its private data,
+     * so only the structure returned by {@code sox_create_effect} is freed, as {@code example0.c} does.
+     */
+    public static void freeEffect(sox_effect_t effect) {
+        Native.free(Pointer.nativeValue(effect.getPointer()));
+    }
+
+    /**
+     * Deletes an effect that was never added to a chain, the chain owns (copies of) the ones added to it.
+     */
+    public static void deleteEffect(sox_effect_t effect) {
+        if (DIRECT) {
+            SoxDirect.sox_delete_effect(effect.getPointer());
+        } else {
+            SoxLibrary.INSTANCE.sox_delete_effect(effect);
+        }
+    }
+
     public static sox_effect_t createInputEffect(sox_format_t input) {
-        sox_effect_handler_t handler = SoxLibrary.INSTANCE.sox_find_effect("input");
+        sox_effect_t inputEffect = SoxLibrary.INSTANCE.sox_create_effect(SoxHandlers.effect("input"));
 
-        if (handler == null) {
-            throw new SoxException("Could not find effects handler with name input");
+        if (inputEffect == null) {
+            throw new SoxException("Could not create input effect");
         }
 
-        sox_effect_t inputEffect = SoxLibrary.INSTANCE.sox_create_effect(handler);
+        int result = effectOptions(inputEffect, input);
 
-        assertSuccess(
-                SoxLibrary.INSTANCE.sox_effect_options(inputEffect, 1, new Pointer[] { input.getPointer() }),
-                "Could not set effects options on effect with input %1$s: %2$d",
-                input);
+        if (result != SOX_SUCCESS) {
+            deleteEffect(inputEffect);
+        }
+        assertSuccess(result, "Could not set effects options on effect with input %1$s: %2$d", input);
 
         return inputEffect;
     }
 
     public static sox_effect_t createOutputEffect(sox_format_t output) {
-        sox_effect_handler_t handler = SoxLibrary.INSTANCE.sox_find_effect("output");
+        sox_effect_t outputEffect = SoxLibrary.INSTANCE.sox_create_effect(SoxHandlers.effect("output"));
 
-        if (handler == null) {
-            throw new SoxException("Could not find effects handler with name output");
+        if (outputEffect == null) {
+            throw new SoxException("Could not create output effect");
         }
 
-        sox_effect_t outputEffect = SoxLibrary.INSTANCE.sox_create_effect(handler);
+        int result = effectOptions(outputEffect, output);
 
-        if (SoxLibrary.INSTANCE.sox_effect_options(outputEffect, 1, new Pointer[] { output.getPointer() }) != SOX_SUCCESS) {
-            throw new SoxException("Could not create output effect");
+        if (result != SOX_SUCCESS) {
+            deleteEffect(outputEffect);
         }
-
-        assertSuccess(
-                SoxLibrary.INSTANCE.sox_effect_options(outputEffect, 1, new Pointer[] { output.getPointer() }),
-                "Could not create output effect with output %1$s: %2$d",
-                output);
+        assertSuccess(result, "Could not create output effect with output %1$s: %2$d", output);
 
         return outputEffect;
     }
 
     public static sox_effects_chain_t addEffect(sox_effects_chain_t chain, sox_effect_t effp, sox_signalinfo_t in, sox_signalinfo_t out) {
         assertSuccess(
-                SoxLibrary.INSTANCE.sox_add_effect(chain, effp, in, out),
+                DIRECT
+                        ? SoxDirect.sox_add_effect(chain.getPointer(), effp.getPointer(), in.getPointer(), out.getPointer())
+                        : SoxLibrary.INSTANCE.sox_add_effect(chain, effp, in, out),
                 "Could not add effect to chain (%1$s, %2$s, %3$s, %4$s): %5$d",
                 chain,
                 effp,
@@ -187,7 +333,9 @@ public final class Sox {
 
     public static void flowEffects(sox_effects_chain_t chain, SoxLibrary.sox_flow_effects_callback callback, Pointer client_data) {
         assertSuccess(
-                SoxLibrary.INSTANCE.sox_flow_effects(chain, null, null),
+                DIRECT
+                        ? SoxDirect.sox_flow_effects(chain.getPointer(), callback, client_data)
+                        : SoxLibrary.INSTANCE.sox_flow_effects(chain, callback, client_data),
                 "Could not flow effects (%1$s): %2$d",
                 chain);
     }
@@ -196,6 +344,36 @@ public final class Sox {
         flowEffects(chain, null, null);
     }
 
+    /**
+     * @return the number of samples clipped by the effects of the chain, the input and output excluded.
+     */
+    public static long effectsClips(sox_effects_chain_t chain) {
+        return DIRECT
+                ? SoxDirect.sox_effects_clips(chain.getPointer())
+                : SoxLibrary.INSTANCE.sox_effects_clips(chain);
+    }
+
+    private static int effectOptions(sox_effect_t effect, String[] options) {
+        int argc = options != null ? options.length : 0;
+
+        if (DIRECT) {
+            return SoxDirect.sox_effect_options(effect.getPointer(), argc, argc > 0 ? new StringArray(options) : null);
+        }
+
+        return SoxLibrary.INSTANCE.sox_effect_options(effect, argc, options);
+    }
+
+    private static int effectOptions(sox_effect_t effect, sox_format_t format) {
+        if (DIRECT) {
+            Memory argv = new Memory(Native.POINTER_SIZE);
+            argv.setPointer(0, format.getPointer());
+
+            return SoxDirect.sox_effect_options(effect.getPointer(), 1, argv);
+        }
+
+        return SoxLibrary.INSTANCE.sox_effect_options(effect, 1, new Pointer[] { format.getPointer() });
+    }
+
     private static void assertSuccess(int result, String formatMsg, Object ... args) {
         if (result != SOX_SUCCESS) {
             Object[] fmtArgs = new Object[args.length + 1];
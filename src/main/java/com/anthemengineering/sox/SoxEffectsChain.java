@@ -1,4 +1,3 @@
-
 /*
  *  Copyright 2019 Anthem Engineering LLC.
  *
@@ -20,27 +19,75 @@ package com.anthemengineering.sox;
 import com.anthemengineering.sox.effects.SoxEffect;
 import com.anthemengineering.sox.format.SoxSink;
 import com.anthemengineering.sox.format.SoxSource;
+import com.anthemengineering.sox.jna.SoxLibrary;
 import com.anthemengineering.sox.jna.sox_effect_t;
 import com.anthemengineering.sox.jna.sox_effects_chain_t;
 import com.anthemengineering.sox.jna.sox_format_t;
+import com.sun.jna.Pointer;
 
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import static com.anthemengineering.sox.ValidationUtil.nonNull;
+import static com.anthemengineering.sox.jna.SoxLibrary.sox_error_t.SOX_EOF;
+import static com.anthemengineering.sox.jna.SoxLibrary.sox_error_t.SOX_SUCCESS;
 
 public final class SoxEffectsChain implements Closeable {
+    public static final long DEFAULT_PROGRESS_INTERVAL_MILLIS = 100;
+
+    private final SoxSource soxSource;
+    private final SoxSink soxSink;
     private final sox_format_t source;
     private final sox_format_t destination;
 
     private final sox_effects_chain_t chain;
+    private final boolean sharesFftTables;
+    // keeps the options marshalled by the template alive as long as the effects referring to them
+    private final ChainTemplate template;
+    private final List<JavaEffect> javaEffects = new ArrayList<>();
+    private final FlowCallback flowCallback = new FlowCallback();
+
+    private final Resources resources;
+    private final SoxLeakDetector.Tracker leakTracker;
+
+    private ChainInstrumentation instrumentation;
+    private volatile boolean cancelled;
+    private boolean closed;
+
+    SoxEffectsChain(SoxSource source, SoxSink sink, boolean sharesFftTables) {
+        this(source, sink, sharesFftTables, null);
+    }
+
+    /**
+     * Opens the source and the sink and creates the native chain, closing whatever was opened if any of it fails.
+     */
+    SoxEffectsChain(SoxSource source, SoxSink sink, boolean sharesFftTables, ChainTemplate template) {
+        this.sharesFftTables = sharesFftTables;
+        this.template = template;
+        this.soxSource = source;
+        this.soxSink = sink;
+
+        Resources opened = new Resources(source, sink, javaEffects, template);
+        try {
+            opened.source = source.create();
+            opened.destination = sink.create(opened.source);
+            opened.chain = Sox.createEffectsChain(opened.source.encoding, opened.destination.encoding);
+        } catch (RuntimeException | Error e) {
+            opened.release(e);
+            throw e;
+        }
 
-    SoxEffectsChain(SoxSource source, SoxSink sink) {
-        this.source = source.create();
-        this.destination = sink.create(this.source);
+        NativeLocks.opened();
+        opened.counted = true;
 
-        this.chain = Sox.createEffectsChain(this.source.encoding, this.destination.encoding);
+        this.resources = opened;
+        this.source = opened.source;
+        this.destination = opened.destination;
+        this.chain = opened.chain;
+        this.leakTracker = SoxLeakDetector.track(this, opened);
     }
 
     public static Builder builder() {
@@ -48,48 +95,349 @@ public final class SoxEffectsChain implements Closeable {
     }
 
     public SoxEffectsChain flowEffects() {
-        Sox.flowEffects(chain);
+        return flowEffects(null);
+    }
+
+    /**
+     * Flows the chain, reporting progress to the listener at most once every
+     * {@link #DEFAULT_PROGRESS_INTERVAL_MILLIS}.
+     *
+     * @param listener may be null, the flow can still be stopped with {@link #cancel()}.
+     * @throws SoxCancelledException if the flow was stopped by the listener or {@link #cancel()}.
+     */
+    public SoxEffectsChain flowEffects(FlowListener listener) {
+        return flowEffects(listener, DEFAULT_PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public SoxEffectsChain flowEffects(FlowListener listener, long progressInterval, TimeUnit unit) {
+        if (sharesFftTables) {
+            synchronized (NativeLocks.FFT) {
+                return flow(listener, unit.toNanos(progressInterval));
+            }
+        }
+
+        return flow(listener, unit.toNanos(progressInterval));
+    }
+
+    /**
+     * Flows the chain on the executor, such as a {@link SoxExecutor}, instead of the calling thread.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if the executor does not accept the flow.
+     */
+    public ChainFuture flowEffectsAsync(Executor executor) {
+        return flowEffectsAsync(executor, null);
+    }
+
+    /**
+     * @param listener notified of the progress of the flow on the executor's thread, may be null.
+     * @see #flowEffectsAsync(Executor)
+     */
+    public ChainFuture flowEffectsAsync(Executor executor, FlowListener listener) {
+        nonNull(executor, "Executor is required to be specified");
+
+        ChainFuture future = new ChainFuture(this, listener);
+        executor.execute(future);
+
+        return future;
+    }
+
+    ChainResult flowForResult(FlowListener listener, long queuedNanos) {
+        long start = System.nanoTime();
+        flowEffects(listener);
+        long flowNanos = System.nanoTime() - start;
+
+        return new ChainResult(
+                destination.getPointer().getLong(StructLayout.FORMAT_OLENGTH),
+                Sox.effectsClips(chain),
+                queuedNanos,
+                flowNanos);
+    }
+
+    private SoxEffectsChain flow(FlowListener listener, long progressIntervalNanos) {
+        flowCallback.reset(listener, progressIntervalNanos);
+
+        try {
+            Sox.flowEffects(chain, flowCallback, null);
+        } catch (SoxException e) {
+            rethrowJavaEffectFailures();
+            if (!cancelled) {
+                throw e;
+            }
+        } finally {
+            flowCallback.detach();
+            if (instrumentation != null) {
+                instrumentation.publish();
+            }
+        }
+
+        flowCallback.rethrowListenerFailure();
+        rethrowJavaEffectFailures();
+
+        if (cancelled) {
+            throw new SoxCancelledException("Flow was cancelled");
+        }
+
+        return this;
+    }
+
+    /**
+     * Reports the time, samples and clips of every effect to the metrics after each flow. Chains that are not
+     * instrumented call their effects directly, at no cost.
+     *
+     * <p>Effects are instrumented as they are when this is called, so it has to be called once the chain is built
+     * (as {@link Builder#metrics(ChainMetrics)} does) and before it is flowed. Exceptions thrown by the metrics are
+     * thrown by {@link #flowEffects()}.</p>
+     *
+     * @throws SoxException if the chain is already instrumented.
+     */
+    public SoxEffectsChain instrument(ChainMetrics metrics) {
+        nonNull(metrics, "Metrics are required to be specified");
+
+        if (instrumentation != null) {
+            throw new SoxException("Chain is already instrumented");
+        }
+
+        instrumentation = ChainInstrumentation.install(chain.getPointer(), metrics);
+        resources.instrumentation = instrumentation;
+
         return this;
     }
 
+    /**
+     * Stops a flow in progress on another thread, or the next one to be started. Checked once per buffer of samples.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Deletes the chain and closes the source and the sink. Closing again does nothing.
+     */
     @Override
     public void close() {
-        Sox.deleteEffectsChain(chain);
-        Sox.close(source);
-        Sox.close(destination);
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        if (leakTracker != null) {
+            leakTracker.close();
+        }
+        resources.run();
+    }
+
+    /**
+     * Closes the chain after building it failed, keeping the original failure.
+     */
+    void closeAfterFailure(Throwable failure) {
+        try {
+            close();
+        } catch (RuntimeException | Error e) {
+            failure.addSuppressed(e);
+        }
     }
 
-    private void addInputEffect() {
-        sox_effect_t inputEffect = Sox.createInputEffect(source);
-        Sox.addEffect(chain, inputEffect, source.signal, source.signal);
+    void addInputEffect() {
+        add(Sox.createInputEffect(source));
     }
 
-    private void addOutputEffect() {
-        sox_effect_t outputEffect = Sox.createOutputEffect(destination);
-        Sox.addEffect(chain, outputEffect, source.signal, source.signal);
+    void addOutputEffect() {
+        add(Sox.createOutputEffect(destination));
     }
 
     private void addEffect(String name, String... options) {
-        sox_effect_t effect = Sox.createEffect(name, options);
-        Sox.addEffect(chain, effect, source.signal, source.signal);
+        add(Sox.createEffect(name, options));
+    }
+
+    void addEffect(JavaEffect effect) {
+        javaEffects.add(effect);
+
+        try {
+            add(Sox.createEffect(effect.getHandler(), effect.getName()));
+        } catch (SoxException e) {
+            effect.rethrowFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * Adds an effect created by {@code sox_create_effect}, freeing it once the chain has its own copy or deleting it
+     * if it could not be added.
+     */
+    private void add(sox_effect_t effect) {
+        try {
+            Sox.addEffect(chain, effect, source.signal, source.signal);
+        } catch (RuntimeException | Error e) {
+            Sox.deleteEffect(effect);
+            throw e;
+        }
+
+        Sox.freeEffect(effect);
+    }
+
+    private void rethrowJavaEffectFailures() {
+        for (JavaEffect effect : javaEffects) {
+            effect.rethrowFailure();
+        }
+    }
+
+    void addEffect(ChainTemplate.CompiledEffect compiled) {
+        add(compiled.create());
+    }
+
+    /**
+     * Everything a chain has to release, kept apart from the chain so that it can still be released by the
+     * {@link SoxLeakDetector} once the chain has been collected. Also keeps what native code calls back into or
+     * points to (Java effects, instrumentation, template options) reachable until then.
+     */
+    private static final class Resources implements Runnable {
+        private final SoxSource soxSource;
+        private final SoxSink soxSink;
+        private final List<JavaEffect> javaEffects;
+        private final ChainTemplate template;
+        // the callbacks the effects were pointed to
+        private ChainInstrumentation instrumentation;
+
+        private sox_format_t source;
+        private sox_format_t destination;
+        private sox_effects_chain_t chain;
+        private boolean counted;
+
+        private Resources(SoxSource soxSource, SoxSink soxSink, List<JavaEffect> javaEffects, ChainTemplate template) {
+            this.soxSource = soxSource;
+            this.soxSink = soxSink;
+            this.javaEffects = javaEffects;
+            this.template = template;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (chain != null) {
+                    Sox.deleteEffectsChain(chain);
+                }
+            } finally {
+                try {
+                    if (source != null) {
+                        Formats.close(soxSource, source);
+                    }
+                } finally {
+                    try {
+                        if (destination != null) {
+                            Formats.close(soxSink, destination);
+                        }
+                    } finally {
+                        if (counted) {
+                            counted = false;
+                            NativeLocks.closed();
+                        }
+                    }
+                }
+            }
+        }
+
+        private void release(Throwable failure) {
+            try {
+                run();
+            } catch (RuntimeException | Error e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Reused across flows so that reporting progress does not allocate; only used by the flowing thread.
+     */
+    private final class FlowCallback implements SoxLibrary.sox_flow_effects_callback {
+        private FlowListener listener;
+        private long intervalNanos;
+        private long nextProgress;
+        private Throwable failure;
+
+        private void reset(FlowListener listener, long intervalNanos) {
+            this.listener = listener;
+            this.intervalNanos = intervalNanos;
+            this.nextProgress = System.nanoTime();
+            this.failure = null;
+        }
+
+        private void detach() {
+            this.listener = null;
+        }
+
+        @Override
+        public int apply(int all_done, Pointer client_data) {
+            if (cancelled) {
+                return SOX_EOF;
+            }
+
+            if (listener == null) {
+                return SOX_SUCCESS;
+            }
+
+            long now = System.nanoTime();
+            boolean done = all_done != 0;
+
+            if (done || now - nextProgress >= 0) {
+                nextProgress = now + intervalNanos;
+
+                try {
+                    if (!listener.onProgress(destination.getPointer().getLong(StructLayout.FORMAT_OLENGTH), done)) {
+                        cancelled = true;
+                    }
+                } catch (Throwable t) {
+                    // JNA would swallow it, stop the flow and rethrow it on the calling thread instead
+                    failure = t;
+                    cancelled = true;
+                }
+            }
+
+            return cancelled ? SOX_EOF : SOX_SUCCESS;
+        }
+
+        private void rethrowListenerFailure() {
+            Throwable t = failure;
+            failure = null;
+
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            } else if (t != null) {
+                throw new SoxException("Flow listener failed", t);
+            }
+        }
     }
 
     public static class Builder {
         private SoxSource source;
         private SoxSink sink;
+        private ChainMetrics metrics;
         private final List<Effect> effects = new ArrayList<>();
 
         private Builder() {
             // no op
         }
 
-        private static class Effect {
-            private final String name;
-            private final String[] options;
+        static class Effect {
+            final String name;
+            final String[] options;
+            final JavaEffect javaEffect;
 
             private Effect(String name, String[] options) {
                 this.name = name;
                 this.options = options;
+                this.javaEffect = null;
+            }
+
+            private Effect(JavaEffect javaEffect) {
+                this.name = javaEffect.getName();
+                this.options = new String[]{};
+                this.javaEffect = javaEffect;
             }
 
             private Effect(String name) {
@@ -123,18 +471,96 @@ public final class SoxEffectsChain implements Closeable {
             return this;
         }
 
+        /**
+         * @param effect an effect implemented in Java, which can only be part of one chain at a time.
+         */
+        public Builder effect(JavaEffect effect) {
+            effects.add(new Effect(nonNull(effect, "Effect is required to be specified")));
+            return this;
+        }
+
+        /**
+         * @param metrics receives the time, samples and clips of every effect after each flow (see
+         *                {@link SoxEffectsChain#instrument(ChainMetrics)}), null (the default) to not instrument the
+         *                chain.
+         */
+        public Builder metrics(ChainMetrics metrics) {
+            this.metrics = metrics;
+
+            return this;
+        }
+
+        SoxSource getSource() {
+            return source;
+        }
+
+        SoxSink getSink() {
+            return sink;
+        }
+
+        ChainMetrics getMetrics() {
+            return metrics;
+        }
+
+        List<Effect> getEffects() {
+            return effects;
+        }
+
+        /**
+         * Resolves the effects added so far and validates their options once, so that chains applying them can be
+         * created for many sources and sinks cheaply. The source and sink of this builder are not used.
+         *
+         * @throws SoxException if an effect does not exist, rejects its options or is a {@link JavaEffect}.
+         */
+        public ChainTemplate compile() {
+            return ChainTemplate.compile(effects);
+        }
+
         public SoxEffectsChain build() {
-            SoxEffectsChain soxEffectsChain = new SoxEffectsChain(
-                    nonNull(source, "Source is required to be specified"),
-                    nonNull(sink, "Sink is required to be specified"));
+            nonNull(source, "Source is required to be specified");
+            nonNull(sink, "Sink is required to be specified");
 
-            soxEffectsChain.addInputEffect();
+            boolean sharesFftTables = false;
             for (Effect effect : effects) {
-                soxEffectsChain.addEffect(effect.name, effect.options);
+                sharesFftTables |= NativeLocks.sharesFftTables(effect.name);
             }
-            soxEffectsChain.addOutputEffect();
 
-            return soxEffectsChain;
+            Formats.beforeOpen(source);
+            Formats.beforeOpen(sink);
+
+            if (sharesFftTables) {
+                synchronized (NativeLocks.FFT) {
+                    return build(true);
+                }
+            }
+
+            return build(false);
+        }
+
+        private SoxEffectsChain build(boolean sharesFftTables) {
+            synchronized (NativeLocks.FORMATS) {
+                SoxEffectsChain soxEffectsChain = new SoxEffectsChain(source, sink, sharesFftTables);
+
+                try {
+                    soxEffectsChain.addInputEffect();
+                    for (Effect effect : effects) {
+                        if (effect.javaEffect != null) {
+                            soxEffectsChain.addEffect(effect.javaEffect);
+                        } else {
+                            soxEffectsChain.addEffect(effect.name, effect.options);
+                        }
+                    }
+                    soxEffectsChain.addOutputEffect();
+                    if (metrics != null) {
+                        soxEffectsChain.instrument(metrics);
+                    }
+                } catch (RuntimeException | Error e) {
+                    soxEffectsChain.closeAfterFailure(e);
+                    throw e;
+                }
+
+                return soxEffectsChain;
+            }
         }
     }
 }
@@ -20,4 +20,8 @@ public class SoxException extends RuntimeException {
     public SoxException(String message) {
         super(message);
     }
-}
\ No newline at end of file
+
+    public SoxException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.anthemengineering.sox.ValidationUtil.nonNull;
+import static com.anthemengineering.sox.ValidationUtil.positiveNumber;
+
+/**
+ * Runs independent {@link SoxEffectsChain}s on a fixed pool of threads.
+ *
+ * <p>Concurrency model:</p>
+ * <ul>
+ *     <li>libsox is initialized once per process ({@link SoxLibManagement}); globals must not be changed and
+ *     {@link SoxLibManagement#reset()} must not be called while any chain is open.</li>
+ *     <li>Opening and closing formats and building chains touch libsox globals (format and effect tables,
+ *     {@code sox_globals_t}), so they are serialized internally. They are short compared to a flow.</li>
+ *     <li>{@link SoxEffectsChain#flowEffects()} of different chains run in parallel; each chain only touches its own
+ *     effects and formats.</li>
+ *     <li>Effects sharing libsox's FFT tables (rate, sinc, spectrogram, ...) are not reentrant unless libsox was built
+ *     with OpenMP, so chains using them are flowed one at a time.</li>
+ *     <li>A chain, and the sources and sinks it was built with, belong to one thread at a time. Every submitted
+ *     builder needs its own source and sink instances.</li>
+ * </ul>
+ *
+ * <p>Each submitted builder is built, flowed and closed on the same pool thread. Cancelling the returned
+ * {@link Future} cancels the flow cooperatively (see {@link SoxEffectsChain#cancel()}).</p>
+ *
+ * <p>It is also an {@link Executor} for already built chains (see
+ * {@link SoxEffectsChain#flowEffectsAsync(Executor)}), keeping long native flows off threads that must not block.
+ * With a queue capacity, work submitted while all threads are busy and the queue is full is rejected with a
+ * {@link java.util.concurrent.RejectedExecutionException} rather than queued without bound.</p>
+ */
+public final class SoxExecutor implements Executor, Closeable {
+    private final ExecutorService executor;
+
+    public SoxExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public SoxExecutor(int threads) {
+        this(threads, new LinkedBlockingQueue<Runnable>());
+    }
+
+    /**
+     * @param queueCapacity the number of chains that can wait for a thread.
+     */
+    public SoxExecutor(int threads, int queueCapacity) {
+        this(threads, new ArrayBlockingQueue<Runnable>(
+                (int) positiveNumber(queueCapacity, "Queue capacity must be positive")));
+    }
+
+    private SoxExecutor(int threads, BlockingQueue<Runnable> queue) {
+        positiveNumber(threads, "Threads must be positive");
+
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                queue,
+                new SoxThreadFactory());
+    }
+
+    public Future<SoxEffectsChain> submit(SoxEffectsChain.Builder builder) {
+        return submit(builder, null);
+    }
+
+    /**
+     * @param listener notified of the progress of the flow, may cancel it by returning {@code false}.
+     * @return a future completing with the (already closed) chain once it has been flowed.
+     */
+    public Future<SoxEffectsChain> submit(SoxEffectsChain.Builder builder, FlowListener listener) {
+        ChainTask task = new ChainTask(nonNull(builder, "Builder is required to be specified"), listener);
+        executor.execute(task);
+
+        return task;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(nonNull(command, "Command is required to be specified"));
+    }
+
+    /**
+     * Stops accepting chains and waits for the submitted ones to complete.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // keep waiting for running chains
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class ChainTask extends FutureTask<SoxEffectsChain> {
+        private final ChainCallable callable;
+
+        ChainTask(SoxEffectsChain.Builder builder, FlowListener listener) {
+            this(new ChainCallable(builder, listener));
+        }
+
+        private ChainTask(ChainCallable callable) {
+            super(callable);
+            this.callable = callable;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+
+            if (cancelled) {
+                callable.cancel();
+            }
+
+            return cancelled;
+        }
+    }
+
+    private static final class ChainCallable implements Callable<SoxEffectsChain> {
+        private final SoxEffectsChain.Builder builder;
+        private final FlowListener listener;
+
+        private volatile SoxEffectsChain chain;
+        private volatile boolean cancelled;
+
+        ChainCallable(SoxEffectsChain.Builder builder, FlowListener listener) {
+            this.builder = builder;
+            this.listener = listener;
+        }
+
+        /**
+         * Stops the chain being flowed, or the one about to be.
+         */
+        void cancel() {
+            cancelled = true;
+
+            SoxEffectsChain chain = this.chain;
+            if (chain != null) {
+                chain.cancel();
+            }
+        }
+
+        @Override
+        public SoxEffectsChain call() {
+            try (SoxEffectsChain chain = builder.build()) {
+                this.chain = chain;
+                // a cancel while the chain was being built did not see it
+                if (cancelled) {
+                    chain.cancel();
+                }
+                return chain.flowEffects(listener);
+            } finally {
+                this.chain = null;
+            }
+        }
+    }
+
+    private static final class SoxThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "sox-executor-" + count.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
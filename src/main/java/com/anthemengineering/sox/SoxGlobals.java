@@ -0,0 +1,208 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.jna.SoxLibrary;
+import com.anthemengineering.sox.jna.size_t;
+import com.anthemengineering.sox.jna.sox_globals_t;
+import com.sun.jna.Pointer;
+
+import static com.anthemengineering.sox.ValidationUtil.positiveNumber;
+import static com.anthemengineering.sox.jna.SoxLibrary.sox_bool.sox_false;
+import static com.anthemengineering.sox.jna.SoxLibrary.sox_bool.sox_true;
+
+/**
+ * Typed access to the tunable fields of libsox's process wide {@code sox_globals_t}.
+ *
+ * <p>{@code bufsiz} is the number of samples each effect processes per call, and the stdio buffer size of files
+ * libsox writes; larger buffers mean fewer iterations (and JNA transitions) per second of audio, smaller ones less
+ * latency before the first samples come out. {@code input_bufsiz} is the stdio buffer size of files opened for
+ * reading, 0 leaving the C library's default.</p>
+ *
+ * <p>{@code use_threads} has libsox process the channels of an effect that works on one channel at a time (most
+ * filters, {@code rate}, ...) in parallel with OpenMP. It only makes a difference on multi-channel audio and when
+ * libsox was built with OpenMP (see {@link #isThreadingAvailable()}).</p>
+ *
+ * <p>Only set fields are written, one at a time, so the rest of the structure (e.g. the message handler) is left
+ * alone. Chains, readers and writers size their buffers and plan their threads from these fields when they are
+ * created, so {@link Builder#apply()} refuses to change them while any of those are open; configure libsox at
+ * startup.</p>
+ */
+public final class SoxGlobals {
+    private static final sox_globals_t GLOBALS = globals();
+
+    private SoxGlobals() {}
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return libsox's {@code bufsiz}, 8192 unless changed.
+     */
+    public static int getBufferSize() {
+        return read("bufsiz");
+    }
+
+    /**
+     * @return libsox's {@code input_bufsiz}.
+     */
+    public static int getInputBufferSize() {
+        return read("input_bufsiz");
+    }
+
+    /**
+     * @return libsox's {@code verbosity}, the highest level of messages it reports (see {@link SoxLogging}).
+     */
+    public static int getVerbosity() {
+        synchronized (GLOBALS) {
+            return (Integer) GLOBALS.readField("verbosity");
+        }
+    }
+
+    /**
+     * @return libsox's {@code use_threads}.
+     */
+    public static boolean isUsingThreads() {
+        synchronized (GLOBALS) {
+            return (Integer) GLOBALS.readField("use_threads") != sox_false;
+        }
+    }
+
+    /**
+     * @return true if libsox was built with OpenMP, without which {@code use_threads} has no effect.
+     */
+    public static boolean isThreadingAvailable() {
+        return NativeLocks.hasThreads();
+    }
+
+    private static sox_globals_t globals() {
+        sox_globals_t globals = SoxLibrary.INSTANCE.sox_get_globals();
+
+        if (globals == null) {
+            throw new SoxException("Could not get the libsox globals");
+        }
+
+        globals.setAutoSynch(false);
+
+        return globals;
+    }
+
+    private static int read(String field) {
+        synchronized (GLOBALS) {
+            return ((size_t) GLOBALS.readField(field)).intValue();
+        }
+    }
+
+    static Pointer pointer() {
+        return GLOBALS.getPointer();
+    }
+
+    private static void write(String field, Object value) {
+        synchronized (GLOBALS) {
+            GLOBALS.writeField(field, value);
+        }
+    }
+
+    public static class Builder {
+        private Integer bufferSize;
+        private Integer inputBufferSize;
+        private Boolean useThreads;
+        private Integer verbosity;
+
+        private Builder() {
+            // no op
+        }
+
+        /**
+         * @param bufferSize samples per effect call and bytes of output stdio buffer.
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = (int) positiveNumber(bufferSize, "Buffer size must be positive");
+
+            return this;
+        }
+
+        /**
+         * @param inputBufferSize bytes of input stdio buffer, 0 for the C library's default.
+         */
+        public Builder inputBufferSize(int inputBufferSize) {
+            if (inputBufferSize < 0) {
+                throw new SoxException("Input buffer size must not be negative");
+            }
+
+            this.inputBufferSize = inputBufferSize;
+
+            return this;
+        }
+
+        /**
+         * @param useThreads whether to process the channels of an effect in parallel.
+         */
+        public Builder useThreads(boolean useThreads) {
+            this.useThreads = useThreads;
+
+            return this;
+        }
+
+        /**
+         * @param verbosity the highest level of messages libsox reports, from 0 (none) to 6 (all debug messages).
+         */
+        public Builder verbosity(int verbosity) {
+            if (verbosity < 0 || verbosity > 6) {
+                throw new SoxException("Verbosity must be between 0 and 6: " + verbosity);
+            }
+
+            this.verbosity = verbosity;
+
+            return this;
+        }
+
+        /**
+         * Writes the fields that were set to libsox.
+         *
+         * @throws SoxException if a chain, sample reader or sample writer is open.
+         */
+        public void apply() {
+            // chains that were collected without being closed should not hold the change up
+            SoxLeakDetector.releaseLeaked();
+
+            synchronized (NativeLocks.FORMATS) {
+                int open = NativeLocks.open();
+
+                if (open > 0) {
+                    throw new SoxException(String.format(
+                            "libsox globals can not be changed while chains, readers or writers are open (%1$d open)",
+                            open));
+                }
+
+                if (bufferSize != null) {
+                    write("bufsiz", new size_t(bufferSize));
+                }
+                if (inputBufferSize != null) {
+                    write("input_bufsiz", new size_t(inputBufferSize));
+                }
+                if (useThreads != null) {
+                    write("use_threads", useThreads ? sox_true : sox_false);
+                }
+                if (verbosity != null) {
+                    write("verbosity", verbosity);
+                }
+            }
+        }
+    }
+}
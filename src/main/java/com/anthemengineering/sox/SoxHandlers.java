@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.jna.SoxLibrary;
+import com.anthemengineering.sox.jna.sox_effect_handler_t;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the effect handlers looked up by name, so that {@code sox_find_effect} (a linear scan of the effects table)
+ * is called once per name.
+ *
+ * <p>The cached structures point to libsox's own handlers; they are never written back. The cache is cleared by
+ * {@link SoxLibManagement#reset()}.</p>
+ *
+ * <p>Format handlers are not cached: {@code sox_open_read} and {@code sox_open_write} look them up by themselves and
+ * can not be given one.</p>
+ */
+public final class SoxHandlers {
+    private static final ConcurrentMap<String, sox_effect_handler_t> EFFECTS = new ConcurrentHashMap<>();
+
+    private static final AtomicLong effectHits = new AtomicLong();
+    private static final AtomicLong effectMisses = new AtomicLong();
+
+    private SoxHandlers() {}
+
+    /**
+     * @throws SoxException if libsox has no effect with that name.
+     */
+    public static sox_effect_handler_t effect(String name) {
+        sox_effect_handler_t handler = EFFECTS.get(name);
+
+        if (handler != null) {
+            effectHits.incrementAndGet();
+            return handler;
+        }
+
+        effectMisses.incrementAndGet();
+        handler = SoxLibrary.INSTANCE.sox_find_effect(name);
+
+        if (handler == null) {
+            throw new SoxException("Could not find effects handler with name " + name);
+        }
+
+        handler.setAutoSynch(false);
+        sox_effect_handler_t existing = EFFECTS.putIfAbsent(name, handler);
+
+        return existing != null ? existing : handler;
+    }
+
+    /**
+     * Looks up the given effects ahead of time, e.g. at startup.
+     */
+    public static void prewarmEffects(String... names) {
+        for (String name : names) {
+            effect(name);
+        }
+    }
+
+    public static long getEffectHits() {
+        return effectHits.get();
+    }
+
+    public static long getEffectMisses() {
+        return effectMisses.get();
+    }
+
+    static void clear() {
+        EFFECTS.clear();
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Notices chains, readers, writers and sink outputs that are garbage collected without having been closed or
+ * released, and releases their native resources (formats, chains, pooled buffers, output buffers) instead of leaking
+ * them.
+ *
+ * <p>Closing remains the caller's job: leaks are only found once the garbage collector has run, and when the next
+ * resource is tracked or {@link #releaseLeaked()} is called. Each leak is counted and reported at {@code WARNING} to
+ * the {@code com.anthemengineering.sox.SoxLeakDetector} logger. Reports include where the resource was created when
+ * the system property {@code sox.leakDetection.trackAllocations=true} is set, which costs a stack trace per resource.
+ * Detection can be turned off altogether with {@code sox.leakDetection=false}.</p>
+ */
+public final class SoxLeakDetector {
+    private static final Logger LOGGER = Logger.getLogger(SoxLeakDetector.class.getName());
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("sox.leakDetection", "true"));
+    private static final boolean TRACK_ALLOCATIONS = Boolean.getBoolean("sox.leakDetection.trackAllocations");
+
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+    private static final Set<Tracker> OPEN = Collections.newSetFromMap(new ConcurrentHashMap<Tracker, Boolean>());
+
+    private static final AtomicLong tracked = new AtomicLong();
+    private static final AtomicLong closed = new AtomicLong();
+    private static final AtomicLong leaked = new AtomicLong();
+
+    private SoxLeakDetector() {}
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Releases the resources of everything found to have been garbage collected without being closed.
+     *
+     * @return the number of leaks found.
+     */
+    public static int releaseLeaked() {
+        int count = 0;
+        Tracker tracker;
+
+        while ((tracker = (Tracker) QUEUE.poll()) != null) {
+            if (OPEN.remove(tracker)) {
+                count++;
+                leaked.incrementAndGet();
+                tracker.releaseLeaked();
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the number of resources tracked since startup.
+     */
+    public static long getTracked() {
+        return tracked.get();
+    }
+
+    /**
+     * @return the number of tracked resources that were closed.
+     */
+    public static long getClosed() {
+        return closed.get();
+    }
+
+    /**
+     * @return the number of tracked resources that were garbage collected without being closed.
+     */
+    public static long getLeaked() {
+        return leaked.get();
+    }
+
+    /**
+     * @return the number of tracked resources neither closed nor found leaked yet.
+     */
+    public static long getOpen() {
+        return OPEN.size();
+    }
+
+    /**
+     * Tracks a resource holding native memory, for sources and sinks that keep it past the format they created.
+     *
+     * @param release must not refer to {@code resource}, or it will never be collected.
+     * @return the tracker to {@link Tracker#close()} when the resource is closed, {@code null} when disabled.
+     */
+    public static Tracker track(Object resource, Runnable release) {
+        if (!ENABLED) {
+            return null;
+        }
+
+        releaseLeaked();
+
+        Tracker tracker = new Tracker(resource, release);
+        OPEN.add(tracker);
+        tracked.incrementAndGet();
+
+        return tracker;
+    }
+
+    public static final class Tracker extends PhantomReference<Object> {
+        private final String type;
+        private final Runnable release;
+        private final Throwable allocation;
+
+        private Tracker(Object resource, Runnable release) {
+            super(resource, QUEUE);
+            this.type = resource.getClass().getSimpleName();
+            this.release = release;
+            this.allocation = TRACK_ALLOCATIONS ? new Throwable("Created here") : null;
+        }
+
+        /**
+         * Stops tracking a resource that released its native resources itself.
+         */
+        public void close() {
+            if (OPEN.remove(this)) {
+                closed.incrementAndGet();
+            }
+            clear();
+        }
+
+        private void releaseLeaked() {
+            if (allocation != null) {
+                LOGGER.log(Level.WARNING, type + " was not closed, releasing its native resources", allocation);
+            } else if (LOGGER.isLoggable(Level.WARNING)) {
+                LOGGER.warning(type + " was not closed, releasing its native resources. Set"
+                        + " -Dsox.leakDetection.trackAllocations=true to find out where it was created.");
+            }
+
+            try {
+                release.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Could not release the native resources of a leaked " + type, e);
+            }
+        }
+    }
+}
@@ -22,12 +22,16 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.anthemengineering.sox.jna.SoxLibrary.sox_error_t.SOX_SUCCESS;
 
+/**
+ * Owns the process wide libsox state. {@link #initialize()} and {@link #reset()} are serialized, but {@link #reset()}
+ * must not be called while any format or chain is open (see {@link SoxExecutor} for the concurrency model).
+ */
 public final class SoxLibManagement {
     private static final AtomicBoolean initialized = new AtomicBoolean(false);
 
     private SoxLibManagement() {}
 
-    public static void initialize() {
+    public static synchronized void initialize() {
         if (!initialized.getAndSet(true)) {
             // only initialize if we are the first
             if (SoxLibrary.INSTANCE.sox_init() != SOX_SUCCESS) {
@@ -36,11 +40,12 @@ public final class SoxLibManagement {
         }
     }
 
-    public static void reset() {
+    public static synchronized void reset() {
         if (SoxLibrary.INSTANCE.sox_quit() != SOX_SUCCESS) {
             throw new SoxException("Could not quit Sox");
         }
 
+        SoxHandlers.clear();
         initialized.set(false);
     }
 }
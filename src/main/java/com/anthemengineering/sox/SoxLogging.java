@@ -0,0 +1,157 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.jna.CLibrary;
+import com.anthemengineering.sox.jna.OutputMessageHandler;
+import com.anthemengineering.sox.jna.size_t;
+import com.sun.jna.CallbackReference;
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Routes libsox's messages, which it otherwise prints to stderr, to the {@code com.anthemengineering.sox.libsox}
+ * java.util.logging logger (and from there to SLF4J or any other facade bridged to it).
+ *
+ * <p>libsox levels map to {@code SEVERE} (fail), {@code WARNING} (warn), {@code INFO} (report), {@code FINE},
+ * {@code FINER} and {@code FINEST} (debug). libsox calls the handler for every message whatever its verbosity, so
+ * the handler checks whether the level is loggable first and returns before formatting anything or touching the
+ * arguments. Messages that are logged are formatted with {@code vsnprintf} into a native buffer kept per thread,
+ * and truncated past {@link #MAX_MESSAGE_LENGTH} bytes.</p>
+ *
+ * <p>{@link #install()} also lowers or raises libsox's verbosity to the logger's level, so that libsox does not
+ * prepare messages nobody will see; call {@link #updateVerbosity()} after changing the logger level. The verbosity
+ * is one of the {@link SoxGlobals}, so neither can be called while chains, readers or writers are open.</p>
+ */
+public final class SoxLogging {
+    public static final String LOGGER_NAME = "com.anthemengineering.sox.libsox";
+    public static final int MAX_MESSAGE_LENGTH = 4096;
+
+    private static final Logger LOGGER = Logger.getLogger(LOGGER_NAME);
+
+    private static final Level[] LEVELS = {
+            Level.OFF,
+            Level.SEVERE,
+            Level.WARNING,
+            Level.INFO,
+            Level.FINE,
+            Level.FINER,
+            Level.FINEST
+    };
+
+    private static final ThreadLocal<MessageBuffer> BUFFERS = new ThreadLocal<MessageBuffer>() {
+        @Override
+        protected MessageBuffer initialValue() {
+            return new MessageBuffer();
+        }
+    };
+
+    // referenced for as long as libsox may call it
+    private static final OutputMessageHandler HANDLER = new OutputMessageHandler() {
+        @Override
+        public void apply(int level, Pointer filename, Pointer fmt, Pointer ap) {
+            Level julLevel = LEVELS[Math.max(1, Math.min(level, LEVELS.length - 1))];
+
+            if (!LOGGER.isLoggable(julLevel) || fmt == null) {
+                return;
+            }
+
+            try {
+                String source = filename != null ? filename.getString(0) : null;
+                LOGGER.logp(julLevel, source, null, BUFFERS.get().format(fmt, ap));
+            } catch (Throwable t) {
+                // never let anything unwind into libsox
+            }
+        }
+    };
+
+    private static boolean installed;
+    private static Pointer previous;
+
+    private SoxLogging() {}
+
+    /**
+     * Replaces libsox's message handler. Installing twice does nothing.
+     *
+     * @throws SoxException if a chain, sample reader or sample writer is open.
+     */
+    public static synchronized void install() {
+        updateVerbosity();
+
+        if (!installed) {
+            Pointer globals = SoxGlobals.pointer();
+            previous = globals.getPointer(StructLayout.GLOBALS_OUTPUT_MESSAGE_HANDLER);
+            globals.setPointer(
+                    StructLayout.GLOBALS_OUTPUT_MESSAGE_HANDLER,
+                    CallbackReference.getFunctionPointer(HANDLER));
+            installed = true;
+        }
+    }
+
+    /**
+     * Puts back the handler that was replaced by {@link #install()}.
+     */
+    public static synchronized void uninstall() {
+        if (installed) {
+            SoxGlobals.pointer().setPointer(StructLayout.GLOBALS_OUTPUT_MESSAGE_HANDLER, previous);
+            previous = null;
+            installed = false;
+        }
+    }
+
+    public static synchronized boolean isInstalled() {
+        return installed;
+    }
+
+    /**
+     * Sets libsox's verbosity to the most detailed level the logger accepts.
+     *
+     * @throws SoxException if a chain, sample reader or sample writer is open.
+     */
+    public static synchronized void updateVerbosity() {
+        int verbosity = 0;
+
+        for (int level = LEVELS.length - 1; level > 0; level--) {
+            if (LOGGER.isLoggable(LEVELS[level])) {
+                verbosity = level;
+                break;
+            }
+        }
+
+        SoxGlobals.builder().verbosity(verbosity).apply();
+    }
+
+    private static final class MessageBuffer {
+        private final Memory memory = new Memory(MAX_MESSAGE_LENGTH);
+        private final size_t size = new size_t(MAX_MESSAGE_LENGTH);
+
+        private String format(Pointer fmt, Pointer ap) {
+            int length = CLibrary.INSTANCE.vsnprintf(memory, size, fmt, ap);
+
+            if (length < 0) {
+                return fmt.getString(0);
+            }
+
+            String message = memory.getString(0);
+
+            return length < MAX_MESSAGE_LENGTH ? message : message + "...";
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.format.SoxSource;
+import com.anthemengineering.sox.jna.size_t;
+import com.anthemengineering.sox.jna.sox_format_t;
+import com.sun.jna.Native;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static com.anthemengineering.sox.ValidationUtil.nonNull;
+import static com.anthemengineering.sox.ValidationUtil.positiveNumber;
+import static com.anthemengineering.sox.jna.SoxLibrary.sox_error_t.SOX_EOF;
+import static com.anthemengineering.sox.jna.SoxLibrary.sox_error_t.SOX_SUCCESS;
+
+/**
+ * Pulls decoded samples out of a {@link SoxSource} one block at a time.
+ *
+ * <p>Every block is read into the same direct buffer, so the {@link IntBuffer} returned by {@link #read()} or
+ * {@link #next()} is only valid until the next block is requested or the reader is closed (the buffer then goes back
+ * to the {@link DirectBufferPool#shared() shared pool}). Samples are interleaved 32-bit {@code sox_sample_t} values
+ * and a block always holds a whole number of frames.</p>
+ */
+public final class SoxSampleReader implements Iterator<IntBuffer>, Closeable {
+    public static final int DEFAULT_BLOCK_SIZE = 8192;
+    // 4 bytes per sample, the block has to fit in a ByteBuffer
+    public static final int MAX_BLOCK_SIZE = Integer.MAX_VALUE / 4;
+
+    private final SoxSource source;
+    private final sox_format_t format;
+    private final ByteBuffer buffer;
+    private final IntBuffer block;
+    private final size_t blockLength;
+
+    private final Release release;
+    private final SoxLeakDetector.Tracker leakTracker;
+
+    private boolean pending;
+    private boolean eof;
+    private boolean closed;
+
+    private SoxSampleReader(SoxSource source, int blockSize) {
+        this.source = source;
+        Formats.beforeOpen(source);
+        synchronized (NativeLocks.FORMATS) {
+            this.format = source.create();
+            NativeLocks.opened();
+        }
+
+        ByteBuffer acquired = null;
+        try {
+            int channels = Math.max(format.signal.channels, 1);
+            int frames = Math.max(blockSize / channels, 1);
+            long size = (long) frames * channels * 4;
+
+            if (size > Integer.MAX_VALUE) {
+                throw new SoxException(String.format("Block can not hold a frame of %1$d channels", channels));
+            }
+
+            acquired = DirectBufferPool.shared().acquire((int) size);
+            this.buffer = acquired;
+            this.block = buffer.order(ByteOrder.nativeOrder()).asIntBuffer();
+            this.blockLength = new size_t(block.capacity());
+            this.block.limit(0);
+            this.release = new Release(source, format, buffer);
+            this.leakTracker = SoxLeakDetector.track(this, release);
+        } catch (RuntimeException | Error e) {
+            new Release(source, format, acquired).release(e);
+            throw e;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public double getRate() {
+        return format.signal.rate;
+    }
+
+    public int getChannels() {
+        return format.signal.channels;
+    }
+
+    public int getPrecision() {
+        return format.signal.precision;
+    }
+
+    /**
+     * @return the number of samples (all channels) in the source, 0 if unknown.
+     */
+    public long getLength() {
+        return format.signal.length;
+    }
+
+    /**
+     * Reads the next block of samples.
+     *
+     * @return the block, positioned at 0 with its limit at the number of samples read, or {@code null} once the
+     * source is exhausted.
+     */
+    public IntBuffer read() {
+        if (!hasNext()) {
+            return null;
+        }
+
+        pending = false;
+        return block;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!pending && !eof) {
+            fill();
+        }
+
+        return pending;
+    }
+
+    @Override
+    public IntBuffer next() {
+        IntBuffer next = read();
+
+        if (next == null) {
+            throw new NoSuchElementException("No more samples");
+        }
+
+        return next;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        eof = true;
+        pending = false;
+        if (leakTracker != null) {
+            leakTracker.close();
+        }
+        release.run();
+    }
+
+    private void fill() {
+        // sox_read is handed the start of the buffer, so the position has to stay at 0
+        block.clear();
+        long read = Sox.read(format, block, blockLength);
+
+        if (read > 0) {
+            block.limit((int) read);
+            pending = true;
+        } else {
+            block.limit(0);
+            eof = true;
+            assertNoError();
+        }
+    }
+
+    private void assertNoError() {
+        int errno = (Integer) format.readField("sox_errno");
+
+        if (errno != SOX_SUCCESS && errno != SOX_EOF) {
+            throw new SoxException(String.format("Could not read samples: %1$s (%2$d)",
+                    Native.toString((byte[]) format.readField("sox_errstr")),
+                    errno));
+        }
+    }
+
+    private static final class Release implements Runnable {
+        private final SoxSource source;
+        private final sox_format_t format;
+        private final ByteBuffer buffer;
+
+        private Release(SoxSource source, sox_format_t format, ByteBuffer buffer) {
+            this.source = source;
+            this.format = format;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Formats.close(source, format);
+            } finally {
+                if (buffer != null) {
+                    DirectBufferPool.shared().release(buffer);
+                }
+                NativeLocks.closed();
+            }
+        }
+
+        private void release(Throwable failure) {
+            try {
+                run();
+            } catch (RuntimeException | Error e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    public static class Builder {
+        private SoxSource source;
+        private int blockSize = DEFAULT_BLOCK_SIZE;
+
+        private Builder() {
+            // no op
+        }
+
+        public Builder source(SoxSource source) {
+            this.source = source;
+
+            return this;
+        }
+
+        /**
+         * @param blockSize the number of samples (all channels) to read at once, rounded down to whole frames, at most
+         *                  {@link #MAX_BLOCK_SIZE}.
+         */
+        public Builder blockSize(int blockSize) {
+            positiveNumber(blockSize, "Block size must be positive");
+
+            if (blockSize > MAX_BLOCK_SIZE) {
+                throw new SoxException("Block size must be at most " + MAX_BLOCK_SIZE);
+            }
+
+            this.blockSize = blockSize;
+
+            return this;
+        }
+
+        public SoxSampleReader build() {
+            return new SoxSampleReader(nonNull(source, "Source is required to be specified"), blockSize);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.format.SoxSink;
+import com.anthemengineering.sox.jna.SoxLibrary;
+import com.anthemengineering.sox.jna.size_t;
+import com.anthemengineering.sox.jna.sox_format_t;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import static com.anthemengineering.sox.ValidationUtil.nonNull;
+import static com.anthemengineering.sox.ValidationUtil.positiveNumber;
+
+/**
+ * Encodes samples generated in Java to any {@link SoxSink}.
+ *
+ * <p>Samples are interleaved 32-bit {@code sox_sample_t} values (or floats in [-1, 1]). They are staged in a direct
+ * buffer from the {@link DirectBufferPool#shared() shared pool} and only handed to libsox once it is full, on
+ * {@link #flush()} or on {@link #close()}, so many small writes still result in a few large native calls. Writing
+ * or flushing a closed writer throws an {@link IllegalStateException}.</p>
+ */
+public final class SoxSampleWriter implements Closeable {
+    public static final int DEFAULT_BLOCK_SIZE = 8192;
+    // 4 bytes per sample, the block has to fit in a ByteBuffer
+    public static final int MAX_BLOCK_SIZE = Integer.MAX_VALUE / 4;
+
+    private final Memory filetype;
+    private final SoxSink sink;
+    private final sox_format_t format;
+    private final ByteBuffer block;
+    private final IntBuffer batch;
+    private final size_t batchLength;
+
+    private final Release release;
+    private final SoxLeakDetector.Tracker leakTracker;
+
+    // float samples are converted here in bulk, then copied to the batch
+    private int[] scratch;
+    private long clips;
+    private boolean closed;
+
+    private SoxSampleWriter(SoxSink sink, double rate, int channels, int precision, String type, int blockSize) {
+        sox_format_t spec = new sox_format_t();
+        spec.signal.rate = rate;
+        spec.signal.channels = channels;
+        spec.signal.precision = precision;
+        SoxLibrary.INSTANCE.sox_init_encodinginfo(spec.encoding);
+
+        if (type != null) {
+            this.filetype = new Memory(type.length() + 1);
+            this.filetype.setString(0, type);
+            spec.filetype = filetype;
+        } else {
+            this.filetype = null;
+        }
+
+        this.sink = sink;
+        Formats.beforeOpen(sink);
+        synchronized (NativeLocks.FORMATS) {
+            this.format = sink.create(spec);
+            NativeLocks.opened();
+        }
+
+        ByteBuffer acquired = null;
+        try {
+            int frames = Math.max(blockSize / channels, 1);
+            long size = (long) frames * channels * 4;
+
+            if (size > Integer.MAX_VALUE) {
+                throw new SoxException(String.format("Block can not hold a frame of %1$d channels", channels));
+            }
+
+            acquired = DirectBufferPool.shared().acquire((int) size);
+            this.block = acquired;
+            this.batch = block.order(ByteOrder.nativeOrder()).asIntBuffer();
+            this.batchLength = new size_t(batch.capacity());
+            // samples still staged when a writer leaks are lost, only the native resources are released
+            this.release = new Release(sink, format, block);
+            this.leakTracker = SoxLeakDetector.track(this, release);
+        } catch (RuntimeException | Error e) {
+            new Release(sink, format, acquired).release(e);
+            throw e;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public SoxSampleWriter write(int[] samples) {
+        return write(samples, 0, samples.length);
+    }
+
+    public SoxSampleWriter write(int[] samples, int offset, int length) {
+        assertOpen();
+
+        while (length > 0) {
+            int count = Math.min(length, batch.remaining());
+            batch.put(samples, offset, count);
+            offset += count;
+            length -= count;
+
+            flushIfFull();
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes the remaining samples of the buffer, advancing its position.
+     */
+    public SoxSampleWriter write(IntBuffer samples) {
+        assertOpen();
+
+        while (samples.hasRemaining()) {
+            int count = Math.min(samples.remaining(), batch.remaining());
+            IntBuffer slice = samples.duplicate();
+            slice.limit(slice.position() + count);
+            batch.put(slice);
+            samples.position(slice.position());
+
+            flushIfFull();
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes float samples in [-1, 1], clipping anything outside that range (see {@link #getClips()}).
+     */
+    public SoxSampleWriter write(float[] samples) {
+        return write(samples, 0, samples.length);
+    }
+
+    public SoxSampleWriter write(float[] samples, int offset, int length) {
+        assertOpen();
+
+        if (scratch == null) {
+            scratch = new int[batch.capacity()];
+        }
+
+        while (length > 0) {
+            int count = Math.min(length, batch.remaining());
+            clips += SampleConverter.fromFloat(samples, offset, scratch, 0, count);
+            batch.put(scratch, 0, count);
+            offset += count;
+            length -= count;
+
+            flushIfFull();
+        }
+
+        return this;
+    }
+
+    /**
+     * @return the number of float samples that were outside of [-1, 1].
+     */
+    public long getClips() {
+        return clips;
+    }
+
+    /**
+     * @throws IllegalStateException if the writer is closed.
+     */
+    public SoxSampleWriter flush() {
+        assertOpen();
+        writeBatch();
+
+        return this;
+    }
+
+    private void writeBatch() {
+        int length = batch.position();
+
+        if (length > 0) {
+            // sox_write is handed the start of the buffer
+            batch.flip();
+            long written = Sox.write(format, batch, length == batch.capacity() ? batchLength : new size_t(length));
+            batch.clear();
+
+            if (written != length) {
+                throw new SoxException(String.format("Could not write samples: %1$s (%2$d of %3$d written)",
+                        Native.toString((byte[]) format.readField("sox_errstr")),
+                        written,
+                        length));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        if (leakTracker != null) {
+            leakTracker.close();
+        }
+        try {
+            writeBatch();
+        } finally {
+            release.run();
+        }
+    }
+
+    private void flushIfFull() {
+        if (!batch.hasRemaining()) {
+            writeBatch();
+        }
+    }
+
+    /**
+     * Once closed, the staging buffer may belong to someone else and the format is freed.
+     */
+    private void assertOpen() {
+        if (closed) {
+            throw new IllegalStateException("Writer is closed");
+        }
+    }
+
+    private static final class Release implements Runnable {
+        private final SoxSink sink;
+        private final sox_format_t format;
+        private final ByteBuffer block;
+
+        private Release(SoxSink sink, sox_format_t format, ByteBuffer block) {
+            this.sink = sink;
+            this.format = format;
+            this.block = block;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Formats.close(sink, format);
+            } finally {
+                if (block != null) {
+                    DirectBufferPool.shared().release(block);
+                }
+                NativeLocks.closed();
+            }
+        }
+
+        private void release(Throwable failure) {
+            try {
+                run();
+            } catch (RuntimeException | Error e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    public static class Builder {
+        private SoxSink sink;
+        private double rate;
+        private int channels;
+        private int precision = 16;
+        private String type;
+        private int blockSize = DEFAULT_BLOCK_SIZE;
+
+        private Builder() {
+            // no op
+        }
+
+        public Builder sink(SoxSink sink) {
+            this.sink = sink;
+
+            return this;
+        }
+
+        public Builder rate(double rate) {
+            this.rate = rate;
+
+            return this;
+        }
+
+        public Builder channels(int channels) {
+            this.channels = channels;
+
+            return this;
+        }
+
+        /**
+         * @param precision bits per sample of the encoded output, 16 by default.
+         */
+        public Builder precision(int precision) {
+            this.precision = precision;
+
+            return this;
+        }
+
+        /**
+         * @param type the file type to encode to (e.g. "wav"), required for sinks that have no file name to
+         *             derive it from, such as {@link com.anthemengineering.sox.format.InMemory}.
+         */
+        public Builder type(String type) {
+            this.type = type;
+
+            return this;
+        }
+
+        /**
+         * @param blockSize the number of samples (all channels) to stage before writing, rounded down to whole
+         *                  frames, at most {@link #MAX_BLOCK_SIZE}.
+         */
+        public Builder blockSize(int blockSize) {
+            positiveNumber(blockSize, "Block size must be positive");
+
+            if (blockSize > MAX_BLOCK_SIZE) {
+                throw new SoxException("Block size must be at most " + MAX_BLOCK_SIZE);
+            }
+
+            this.blockSize = blockSize;
+
+            return this;
+        }
+
+        public SoxSampleWriter build() {
+            if (!(rate > 0)) {
+                throw new SoxException("Rate is required to be specified");
+            }
+
+            return new SoxSampleWriter(
+                    nonNull(sink, "Sink is required to be specified"),
+                    rate,
+                    (int) positiveNumber(channels, "Channels are required to be specified"),
+                    (int) positiveNumber(precision, "Precision must be positive"),
+                    type,
+                    blockSize);
+        }
+    }
+}
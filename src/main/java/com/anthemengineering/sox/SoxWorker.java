@@ -0,0 +1,65 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Entry point of the processes started by {@link SoxWorkerPool}; not meant to be run directly.
+ *
+ * <p>Reads one {@link WorkerRequest} at a time from stdin and answers on stdout until stdin is closed. Anything
+ * printed to {@link System#out} is sent to stderr so it can not corrupt the replies.</p>
+ */
+public final class SoxWorker {
+    private SoxWorker() {}
+
+    public static void main(String[] args) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true));
+
+        while (true) {
+            WorkerRequest request;
+
+            try {
+                request = WorkerRequest.read(in);
+            } catch (EOFException e) {
+                return;
+            }
+
+            try {
+                long outputLength = request.run();
+                out.writeByte(WorkerRequest.OK);
+                out.writeLong(outputLength);
+            } catch (RuntimeException | Error e) {
+                out.writeByte(WorkerRequest.FAILED);
+                WorkerRequest.writeString(out, String.valueOf(e.getMessage()));
+            }
+
+            out.flush();
+        }
+    }
+}
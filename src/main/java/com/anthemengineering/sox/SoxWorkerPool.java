@@ -0,0 +1,366 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.anthemengineering.sox.ValidationUtil.nonNull;
+import static com.anthemengineering.sox.ValidationUtil.positiveNumber;
+
+/**
+ * Runs chains in a pool of separate JVM processes (see {@link SoxWorker}).
+ *
+ * <p>Each worker has its own copy of the libsox globals, so chains that would be serialized by {@link SoxExecutor}
+ * (effects sharing the FFT tables, for example) run truly in parallel, and a crash in native code only takes down
+ * the worker, which is restarted. Only {@link com.anthemengineering.sox.format.FileSource},
+ * {@link com.anthemengineering.sox.format.FileSink} and {@link com.anthemengineering.sox.format.InMemory} can be sent
+ * to a worker; in-memory samples are exchanged through shared memory rather than the pipes.</p>
+ *
+ * <p>An {@link com.anthemengineering.sox.format.InMemory} sink is filled in, and its
+ * {@link com.anthemengineering.sox.format.InMemory#getOutput()} available, once the returned future completes.</p>
+ *
+ * <p>A worker that does not answer within the {@link Builder#timeout(long, TimeUnit) timeout} is killed and its
+ * request fails. Workers that died are replaced when their slot is next used; if a replacement can not be started,
+ * that request fails and the next one tries again.</p>
+ */
+public final class SoxWorkerPool implements Closeable {
+    public static final long DEFAULT_TIMEOUT_MINUTES = 60;
+
+    private final List<String> command;
+    private final long timeoutNanos;
+    private final BlockingQueue<Slot> idle;
+    private final List<Worker> workers;
+    private final ExecutorService dispatcher;
+    private final ScheduledThreadPoolExecutor watchdog;
+
+    private SoxWorkerPool(int size, List<String> command, long timeoutNanos) {
+        this.command = command;
+        this.timeoutNanos = timeoutNanos;
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.workers = Collections.synchronizedList(new ArrayList<Worker>());
+        this.dispatcher = Executors.newFixedThreadPool(size, new ThreadFactory() {
+            private int count;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "sox-worker-dispatcher-" + ++count);
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+        this.watchdog = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "sox-worker-watchdog");
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+        this.watchdog.setRemoveOnCancelPolicy(true);
+
+        try {
+            for (int i = 0; i < size; i++) {
+                Slot slot = new Slot();
+                idle.add(slot);
+                slot.worker();
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Sends the chain to the next idle worker.
+     *
+     * @throws SoxException if the source or sink can not be sent to a worker.
+     * @throws java.util.concurrent.RejectedExecutionException if the pool is closed.
+     */
+    public Future<Void> submit(SoxEffectsChain.Builder chain) {
+        final WorkerRequest request = WorkerRequest.describe(nonNull(chain, "Builder is required to be specified"));
+        // the shared memory of the request is deleted by whoever claims it: the dispatcher once it has run it, or
+        // cancelling it before a dispatcher got to it
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                if (!claimed.compareAndSet(false, true)) {
+                    return null;
+                }
+
+                try {
+                    Slot slot = idle.take();
+
+                    try {
+                        request.complete(run(slot, request));
+                    } finally {
+                        // never fails, there are as many slots as room in the queue
+                        idle.add(slot);
+                    }
+                } finally {
+                    request.release();
+                }
+
+                return null;
+            }
+        }) {
+            @Override
+            protected void done() {
+                if (claimed.compareAndSet(false, true)) {
+                    request.release();
+                }
+            }
+        };
+
+        try {
+            dispatcher.execute(task);
+        } catch (RuntimeException | Error e) {
+            request.release();
+            throw e;
+        }
+
+        return task;
+    }
+
+    private long run(Slot slot, WorkerRequest request) {
+        final Worker worker = slot.worker();
+        ScheduledFuture<?> timeout = watchdog.schedule(new Runnable() {
+            @Override
+            public void run() {
+                worker.kill();
+            }
+        }, timeoutNanos, TimeUnit.NANOSECONDS);
+
+        try {
+            return worker.run(request);
+        } catch (IOException e) {
+            slot.discard();
+
+            if (worker.killed) {
+                throw new SoxException(String.format("Worker process timed out after %1$d ms",
+                        TimeUnit.NANOSECONDS.toMillis(timeoutNanos)), e);
+            }
+
+            throw new SoxException("Worker process failed", e);
+        } finally {
+            if (!timeout.cancel(false)) {
+                // killed, or being killed, right as it answered
+                slot.discard();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        dispatcher.shutdown();
+
+        try {
+            dispatcher.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        watchdog.shutdownNow();
+
+        synchronized (workers) {
+            for (Worker worker : workers) {
+                worker.stop();
+            }
+            workers.clear();
+        }
+    }
+
+    private Worker start() {
+        try {
+            Worker worker = new Worker(new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start());
+            workers.add(worker);
+
+            return worker;
+        } catch (IOException e) {
+            throw new SoxException("Could not start worker process", e);
+        }
+    }
+
+    /**
+     * A place in the pool, holding a worker unless the last one died and could not be replaced yet. Only used by the
+     * dispatcher thread that took it from the idle queue.
+     */
+    private final class Slot {
+        private Worker worker;
+
+        private Worker worker() {
+            if (worker == null) {
+                worker = start();
+            }
+
+            return worker;
+        }
+
+        private void discard() {
+            if (worker != null) {
+                worker.destroy();
+                worker = null;
+            }
+        }
+    }
+
+    private final class Worker {
+        private final Process process;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+
+        private volatile boolean killed;
+
+        private Worker(Process process) {
+            this.process = process;
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        private long run(WorkerRequest request) throws IOException {
+            request.write(out);
+            out.flush();
+
+            if (in.readByte() == WorkerRequest.OK) {
+                return in.readLong();
+            }
+
+            throw new SoxException(WorkerRequest.readString(in));
+        }
+
+        private void stop() {
+            try {
+                out.close();
+                process.waitFor();
+            } catch (IOException e) {
+                process.destroy();
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void kill() {
+            killed = true;
+            process.destroy();
+        }
+
+        private void destroy() {
+            process.destroy();
+            workers.remove(this);
+        }
+    }
+
+    public static class Builder {
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        private String classpath = System.getProperty("java.class.path");
+        private long timeoutNanos = TimeUnit.MINUTES.toNanos(DEFAULT_TIMEOUT_MINUTES);
+        private final List<String> jvmArguments = new ArrayList<>();
+
+        private Builder() {
+            // no op
+        }
+
+        public Builder workers(int workers) {
+            this.workers = (int) positiveNumber(workers, "Workers must be positive");
+
+            return this;
+        }
+
+        /**
+         * @param java the java executable to start workers with, the one running this JVM by default.
+         */
+        public Builder java(String java) {
+            this.java = java;
+
+            return this;
+        }
+
+        /**
+         * @param classpath the classpath of the workers, which needs this library and JNA; the one of this JVM by
+         *                  default.
+         */
+        public Builder classpath(String classpath) {
+            this.classpath = classpath;
+
+            return this;
+        }
+
+        /**
+         * @param timeout how long a worker may take to run a chain before it is killed,
+         *                {@link SoxWorkerPool#DEFAULT_TIMEOUT_MINUTES} minutes by default.
+         */
+        public Builder timeout(long timeout, TimeUnit unit) {
+            this.timeoutNanos = unit.toNanos(positiveNumber(timeout, "Timeout must be positive"));
+
+            return this;
+        }
+
+        public Builder jvmArgument(String argument) {
+            jvmArguments.add(argument);
+
+            return this;
+        }
+
+        public SoxWorkerPool build() {
+            List<String> command = new ArrayList<>();
+            command.add(nonNull(java, "Java is required to be specified"));
+            command.addAll(jvmArguments);
+
+            String libraryPath = System.getProperty("jna.library.path");
+            if (libraryPath != null) {
+                command.add("-Djna.library.path=" + libraryPath);
+            }
+
+            command.add("-cp");
+            command.add(nonNull(classpath, "Classpath is required to be specified"));
+            command.add(SoxWorker.class.getName());
+
+            return new SoxWorkerPool(workers, command, timeoutNanos);
+        }
+    }
+}
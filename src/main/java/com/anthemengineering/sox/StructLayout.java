@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.jna.sox_effect_handler_t;
+import com.anthemengineering.sox.jna.sox_effect_t;
+import com.anthemengineering.sox.jna.sox_effects_chain_t;
+import com.anthemengineering.sox.jna.sox_format_handler_t;
+import com.anthemengineering.sox.jna.sox_format_t;
+import com.anthemengineering.sox.jna.sox_globals_t;
+
+/**
+ * Native field offsets, for reading single fields of structures that are passed around as pointers without
+ * {@link com.sun.jna.Structure#readField(String) reading} (and boxing) them through JNA.
+ */
+final class StructLayout {
+    static final int FORMAT_OLENGTH = new Format().offset("olength");
+    static final int FORMAT_HANDLER = new Format().offset("handler");
+    static final int FORMAT_FP = new Format().offset("fp");
+    static final int FORMAT_HANDLER_STOPWRITE = FORMAT_HANDLER + new FormatHandler().offset("stopwrite");
+    static final int FORMAT_SIZE = new sox_format_t().size();
+    static final int EFFECT_IN_SIGNAL = new Effect().offset("in_signal");
+    static final int EFFECT_HANDLER = new Effect().offset("handler");
+    static final int EFFECT_CLIPS = new Effect().offset("clips");
+    static final int EFFECT_FLOWS = new Effect().offset("flows");
+    static final int EFFECT_SIZE = new sox_effect_t().size();
+    static final int HANDLER_NAME = new Handler().offset("name");
+    static final int HANDLER_FLOW = new Handler().offset("flow");
+    static final int HANDLER_DRAIN = new Handler().offset("drain");
+    static final int CHAIN_EFFECTS = new Chain().offset("effects");
+    static final int CHAIN_LENGTH = new Chain().offset("length");
+    static final int GLOBALS_OUTPUT_MESSAGE_HANDLER = new Globals().offset("output_message_handler");
+
+    private StructLayout() {}
+
+    private static final class Format extends sox_format_t {
+        private int offset(String field) {
+            return fieldOffset(field);
+        }
+    }
+
+    private static final class FormatHandler extends sox_format_handler_t {
+        private int offset(String field) {
+            return fieldOffset(field);
+        }
+    }
+
+    private static final class Effect extends sox_effect_t {
+        private int offset(String field) {
+            return fieldOffset(field);
+        }
+    }
+
+    private static final class Handler extends sox_effect_handler_t {
+        private int offset(String field) {
+            return fieldOffset(field);
+        }
+    }
+
+    private static final class Chain extends sox_effects_chain_t {
+        private int offset(String field) {
+            return fieldOffset(field);
+        }
+    }
+
+    private static final class Globals extends sox_globals_t {
+        private int offset(String field) {
+            return fieldOffset(field);
+        }
+    }
+}
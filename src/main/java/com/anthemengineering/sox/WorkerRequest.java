@@ -0,0 +1,289 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.format.FileSink;
+import com.anthemengineering.sox.format.FileSource;
+import com.anthemengineering.sox.format.InMemory;
+import com.anthemengineering.sox.format.SoxSink;
+import com.anthemengineering.sox.format.SoxSource;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The request sent by {@link SoxWorkerPool} to a {@link SoxWorker} process for one chain.
+ *
+ * <p>Files are passed by path. {@link InMemory} sources and sinks are transported through temporary files mapped by
+ * both processes (under {@code /dev/shm} when available), so samples are never pushed through the pipes.</p>
+ */
+final class WorkerRequest {
+    static final byte OK = 0;
+    static final byte FAILED = 1;
+
+    private static final byte FILE = 1;
+    private static final byte SHARED = 2;
+    private static final File SHARED_DIRECTORY = sharedDirectory();
+
+    private final byte sourceKind;
+    private final String sourcePath;
+    private final long sourceLength;
+    private final byte sinkKind;
+    private final String sinkPath;
+    private final long sinkLength;
+    private final boolean overwrite;
+    private final List<String[]> effects;
+
+    private InMemory memorySink;
+
+    private WorkerRequest(byte sourceKind, String sourcePath, long sourceLength,
+                          byte sinkKind, String sinkPath, long sinkLength, boolean overwrite,
+                          List<String[]> effects) {
+        this.sourceKind = sourceKind;
+        this.sourcePath = sourcePath;
+        this.sourceLength = sourceLength;
+        this.sinkKind = sinkKind;
+        this.sinkPath = sinkPath;
+        this.sinkLength = sinkLength;
+        this.overwrite = overwrite;
+        this.effects = effects;
+    }
+
+    /**
+     * Describes the chain, copying {@link InMemory} sources to shared memory.
+     */
+    static WorkerRequest describe(SoxEffectsChain.Builder builder) {
+        SoxSource source = ValidationUtil.nonNull(builder.getSource(), "Source is required to be specified");
+        SoxSink sink = ValidationUtil.nonNull(builder.getSink(), "Sink is required to be specified");
+
+        if (builder.getMetrics() != null) {
+            throw new SoxException("Chains run by worker processes can not be instrumented");
+        }
+
+        List<String[]> effects = new ArrayList<>();
+        for (SoxEffectsChain.Builder.Effect effect : builder.getEffects()) {
+            if (effect.javaEffect != null) {
+                throw new SoxException("Java effects can not be sent to worker processes: " + effect.name);
+            }
+
+            String[] nameAndOptions = new String[effect.options.length + 1];
+            nameAndOptions[0] = effect.name;
+            System.arraycopy(effect.options, 0, nameAndOptions, 1, effect.options.length);
+            effects.add(nameAndOptions);
+        }
+
+        byte sinkKind;
+        String sinkPath;
+        long sinkLength = 0;
+        boolean overwrite = false;
+
+        if (sink instanceof FileSink) {
+            sinkKind = FILE;
+            sinkPath = ValidationUtil.nonNull(((FileSink) sink).getPath(), "Sink path is required to be specified.")
+                    .toAbsolutePath().toString();
+            overwrite = ((FileSink) sink).isOverwrite();
+        } else if (sink instanceof InMemory) {
+            sinkKind = SHARED;
+            sinkLength = ((InMemory) sink).getBufferSize();
+            sinkPath = createShared("sink", sinkLength).getPath();
+        } else {
+            throw new SoxException("Sink is not supported by worker processes: " + sink.getClass().getName());
+        }
+
+        WorkerRequest request;
+        File sourceShared = null;
+
+        try {
+            if (source instanceof FileSource) {
+                String path = ValidationUtil.nonNull(((FileSource) source).getPath(), "Source is required to be specified")
+                        .toAbsolutePath().toString();
+                request = new WorkerRequest(FILE, path, 0, sinkKind, sinkPath, sinkLength, overwrite, effects);
+            } else if (source instanceof InMemory) {
+                ByteBuffer input = ((InMemory) source).getBuffer();
+                sourceShared = createShared("source", input.remaining());
+                map(sourceShared, input.remaining()).put(input);
+                request = new WorkerRequest(SHARED, sourceShared.getPath(), sourceShared.length(),
+                        sinkKind, sinkPath, sinkLength, overwrite, effects);
+            } else {
+                throw new SoxException("Source is not supported by worker processes: " + source.getClass().getName());
+            }
+        } catch (RuntimeException e) {
+            if (sourceShared != null) {
+                sourceShared.delete();
+            }
+            if (sinkKind == SHARED) {
+                new File(sinkPath).delete();
+            }
+            throw e;
+        }
+
+        if (sink instanceof InMemory) {
+            request.memorySink = (InMemory) sink;
+        }
+
+        return request;
+    }
+
+    static WorkerRequest read(DataInput in) throws IOException {
+        byte sourceKind = in.readByte();
+        String sourcePath = readString(in);
+        long sourceLength = in.readLong();
+        byte sinkKind = in.readByte();
+        String sinkPath = readString(in);
+        long sinkLength = in.readLong();
+        boolean overwrite = in.readBoolean();
+
+        int count = in.readInt();
+        List<String[]> effects = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] nameAndOptions = new String[in.readInt()];
+            for (int j = 0; j < nameAndOptions.length; j++) {
+                nameAndOptions[j] = readString(in);
+            }
+            effects.add(nameAndOptions);
+        }
+
+        return new WorkerRequest(sourceKind, sourcePath, sourceLength, sinkKind, sinkPath, sinkLength, overwrite, effects);
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeByte(sourceKind);
+        writeString(out, sourcePath);
+        out.writeLong(sourceLength);
+        out.writeByte(sinkKind);
+        writeString(out, sinkPath);
+        out.writeLong(sinkLength);
+        out.writeBoolean(overwrite);
+
+        out.writeInt(effects.size());
+        for (String[] nameAndOptions : effects) {
+            out.writeInt(nameAndOptions.length);
+            for (String s : nameAndOptions) {
+                writeString(out, s);
+            }
+        }
+    }
+
+    /**
+     * Runs the chain in the worker process.
+     *
+     * @return the number of bytes written to a shared sink, -1 for files.
+     */
+    long run() throws IOException {
+        SoxEffectsChain.Builder builder = SoxEffectsChain.builder();
+
+        if (sourceKind == FILE) {
+            builder.source(new FileSource().path(sourcePath));
+        } else {
+            builder.source(new InMemory().buffer(map(new File(sourcePath), sourceLength), sourceLength));
+        }
+
+        InMemory shared = null;
+        if (sinkKind == FILE) {
+            FileSink fileSink = new FileSink().path(sinkPath);
+            builder.sink(overwrite ? fileSink.allowOverwrite() : fileSink);
+        } else {
+            shared = new InMemory().buffer(map(new File(sinkPath), sinkLength), sinkLength);
+            builder.sink(shared);
+        }
+
+        for (String[] nameAndOptions : effects) {
+            String[] options = new String[nameAndOptions.length - 1];
+            System.arraycopy(nameAndOptions, 1, options, 0, options.length);
+            builder.effect(nameAndOptions[0], options);
+        }
+
+        try (SoxEffectsChain chain = builder.build()) {
+            chain.flowEffects();
+        }
+
+        return shared != null ? shared.getOutputLength() : -1;
+    }
+
+    /**
+     * Hands the output of the worker to the caller's sink, back in the submitting process.
+     */
+    void complete(long outputLength) {
+        if (memorySink != null) {
+            ByteBuffer output = map(new File(sinkPath), sinkLength);
+            output.limit((int) outputLength);
+            memorySink.output(output);
+        }
+    }
+
+    void release() {
+        if (sourceKind == SHARED) {
+            new File(sourcePath).delete();
+        }
+        if (sinkKind == SHARED) {
+            new File(sinkPath).delete();
+        }
+    }
+
+    /**
+     * Writes a string as length-prefixed UTF-8; {@link DataOutput#writeUTF(String)} fails past 64K, which long effect
+     * options and the libsox messages quoting them can reach.
+     */
+    static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static File createShared(String prefix, long length) {
+        try {
+            File file = File.createTempFile("sox-" + prefix + "-", ".shm", SHARED_DIRECTORY);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(length);
+            }
+
+            return file;
+        } catch (IOException e) {
+            throw new SoxException("Could not create shared memory for a worker", e);
+        }
+    }
+
+    private static MappedByteBuffer map(File file, long length) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        } catch (IOException e) {
+            throw new SoxException("Could not map shared memory " + file, e);
+        }
+    }
+
+    private static File sharedDirectory() {
+        File shm = new File("/dev/shm");
+
+        return shm.isDirectory() && shm.canWrite() ? shm : null;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.format;
+
+import com.anthemengineering.sox.Sox;
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.jna.sox_format_t;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import static com.anthemengineering.sox.ValidationUtil.nonNull;
+import static com.anthemengineering.sox.ValidationUtil.positiveNumber;
+
+/**
+ * Pushes encoded output to a channel (e.g. a client socket) as libsox produces it, so the first bytes go out long
+ * before the whole stream has been encoded.
+ *
+ * <p>libsox writes to an OS pipe as it would to a file, and a thread pumps whatever arrives in the pipe to the
+ * channel. The stream can not be rewound, so headers that are normally patched once the length is known (wav, for
+ * example) keep the length they were written with. The {@link #type(String)} is required as there is no file name
+ * to derive it from. POSIX only (the pipe is opened as {@code /dev/fd/N}).</p>
+ *
+ * <p>Formats are closed one at a time across the JVM, so the pump stops writing to the channel once the format starts
+ * closing (see {@link FormatLifecycle#beforeClose(sox_format_t)}): whatever libsox writes while closing (the last
+ * buffer, trailers) is kept in memory and only written to the channel once the format has been closed. A slow
+ * consumer then only holds up its own chain.</p>
+ *
+ * <p>The channel is not closed. A failure to write to it makes libsox fail too, and is rethrown when the format is
+ * closed.</p>
+ */
+public class ChannelSink implements SoxSink, FormatLifecycle {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private WritableByteChannel channel;
+    private String type;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    private NativePipe pipe;
+    private Thread pump;
+    private volatile IOException failure;
+
+    // whether the pump may write to the channel, and whether it is
+    private final Object pumpState = new Object();
+    private boolean closing;
+    private boolean writing;
+    // what libsox wrote while closing, only touched by the pump until it is joined
+    private ByteArrayOutputStream tail;
+
+    public ChannelSink channel(WritableByteChannel channel) {
+        this.channel = channel;
+
+        return this;
+    }
+
+    /**
+     * @param type the file type to encode to, e.g. "wav" or "flac".
+     */
+    public ChannelSink type(String type) {
+        this.type = type;
+
+        return this;
+    }
+
+    /**
+     * @param bufferSize the number of bytes read from the pipe at once, and requested for the pipe.
+     */
+    public ChannelSink bufferSize(int bufferSize) {
+        this.bufferSize = (int) positiveNumber(bufferSize, "Buffer size must be positive");
+
+        return this;
+    }
+
+    @Override
+    public sox_format_t create(sox_format_t sourceFormat) {
+        final WritableByteChannel destination = nonNull(channel, "Channel is required to be specified");
+        nonNull(type, "Type is required to be specified");
+
+        failure = null;
+        closing = false;
+        tail = new ByteArrayOutputStream();
+        pipe = new NativePipe(bufferSize);
+        pump = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+
+                try {
+                    while (pipe.read(buffer) >= 0) {
+                        buffer.flip();
+                        if (startWriting()) {
+                            try {
+                                while (buffer.hasRemaining()) {
+                                    destination.write(buffer);
+                                }
+                            } finally {
+                                stopWriting();
+                            }
+                        } else {
+                            // the format is being closed, possibly holding the format lock
+                            byte[] bytes = new byte[buffer.remaining()];
+                            buffer.get(bytes);
+                            tail.write(bytes, 0, bytes.length);
+                        }
+                        buffer.clear();
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                } finally {
+                    // makes libsox fail rather than block on a full pipe
+                    pipe.closeRead();
+                }
+            }
+        }, "sox-channel-sink");
+        pump.setDaemon(true);
+        pump.start();
+
+        try {
+            return Sox.openWrite(pipe.writePath(), sourceFormat.signal, null, type, null, true);
+        } catch (RuntimeException e) {
+            pipe.closeWrite();
+            joinPump();
+            throw e;
+        } finally {
+            // libsox has its own descriptor for the pipe, the pump sees the end once libsox closes it
+            pipe.closeWrite();
+        }
+    }
+
+    @Override
+    public void beforeOpen() {
+        // no op
+    }
+
+    /**
+     * Waits for the pump to finish writing to the channel, and keeps it from writing to it again.
+     */
+    @Override
+    public void beforeClose(sox_format_t format) {
+        synchronized (pumpState) {
+            closing = true;
+
+            while (writing) {
+                try {
+                    pumpState.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void afterClose() {
+        joinPump();
+
+        if (failure == null) {
+            try {
+                ByteBuffer remaining = ByteBuffer.wrap(tail.toByteArray());
+                while (remaining.hasRemaining()) {
+                    channel.write(remaining);
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        tail = null;
+
+        IOException e = failure;
+        failure = null;
+
+        if (e != null) {
+            throw new SoxException("Could not write to channel", e);
+        }
+    }
+
+    private boolean startWriting() {
+        synchronized (pumpState) {
+            writing = !closing;
+
+            return writing;
+        }
+    }
+
+    private void stopWriting() {
+        synchronized (pumpState) {
+            writing = false;
+            pumpState.notifyAll();
+        }
+    }
+
+    private void joinPump() {
+        try {
+            pump.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
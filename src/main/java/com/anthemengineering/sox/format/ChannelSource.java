@@ -0,0 +1,198 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.format;
+
+import com.anthemengineering.sox.Sox;
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.jna.sox_format_t;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.CountDownLatch;
+
+import static com.anthemengineering.sox.ValidationUtil.nonNull;
+import static com.anthemengineering.sox.ValidationUtil.positiveNumber;
+
+/**
+ * Feeds an encoded stream (e.g. an HTTP body) to libsox as it arrives, without holding it in memory.
+ *
+ * <p>The channel is pumped by a thread into an OS pipe that libsox reads like a file, so at most
+ * {@link #bufferSize(int)} bytes are buffered on each side of the pipe whatever the length of the stream. As the
+ * stream can not be rewound, giving the {@link #type(String)} is recommended; without it libsox detects the format
+ * from the start of the stream if it can. POSIX only (the pipe is opened as {@code /dev/fd/N}).</p>
+ *
+ * <p>Formats are opened one at a time across the JVM, so the first {@link #bufferSize(int)} bytes are read from the
+ * channel before that (see {@link FormatLifecycle#beforeOpen()}): libsox reads the header without waiting on the
+ * channel, and a slow or stalled stream only holds up its own chain. Headers longer than the buffer are still read
+ * as the stream arrives.</p>
+ *
+ * <p>The channel is not closed, unless the format is closed before it is exhausted: the pump is then interrupted,
+ * which closes interruptible channels. Read failures end the input early and are rethrown when the format is
+ * closed.</p>
+ */
+public class ChannelSource implements SoxSource, FormatLifecycle {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private ReadableByteChannel channel;
+    private String type;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    private NativePipe pipe;
+    private Thread pump;
+    private CountDownLatch prefetched;
+    private volatile boolean closing;
+    private volatile IOException failure;
+
+    public ChannelSource channel(ReadableByteChannel channel) {
+        this.channel = channel;
+
+        return this;
+    }
+
+    /**
+     * @param type the file type of the stream, e.g. "wav" or "mp3".
+     */
+    public ChannelSource type(String type) {
+        this.type = type;
+
+        return this;
+    }
+
+    /**
+     * @param bufferSize the number of bytes buffered by the pump, and requested for the pipe.
+     */
+    public ChannelSource bufferSize(int bufferSize) {
+        this.bufferSize = (int) positiveNumber(bufferSize, "Buffer size must be positive");
+
+        return this;
+    }
+
+    /**
+     * Starts the pump and waits until it has read a full buffer, the end of the stream or a failure.
+     */
+    @Override
+    public void beforeOpen() {
+        if (pump == null) {
+            startPump();
+        }
+
+        try {
+            prefetched.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public sox_format_t create() {
+        if (pump == null) {
+            // not prepared by beforeOpen(), libsox reads the header as it arrives
+            startPump();
+        }
+
+        try {
+            return Sox.openRead(pipe.readPath(), null, null, type);
+        } catch (RuntimeException e) {
+            // without a reader a pump blocked writing to a full pipe gets EPIPE, it would not see the interrupt
+            pipe.closeRead();
+            stopPump();
+            throw e;
+        } finally {
+            // libsox has its own descriptor for the pipe
+            pipe.closeRead();
+        }
+    }
+
+    private void startPump() {
+        final ReadableByteChannel source = nonNull(channel, "Channel is required to be specified");
+        final CountDownLatch ready = new CountDownLatch(1);
+
+        closing = false;
+        failure = null;
+        prefetched = ready;
+        pipe = new NativePipe(bufferSize);
+        pump = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+
+                try {
+                    // the first buffer is read in full before libsox gets to read the header
+                    int n;
+                    do {
+                        n = source.read(buffer);
+                    } while (n >= 0 && buffer.hasRemaining());
+                    ready.countDown();
+
+                    while (true) {
+                        buffer.flip();
+                        pipe.write(buffer);
+                        buffer.clear();
+
+                        if (n < 0) {
+                            break;
+                        }
+                        n = source.read(buffer);
+                    }
+                } catch (IOException e) {
+                    if (!closing) {
+                        failure = e;
+                    }
+                } finally {
+                    ready.countDown();
+                    // end of stream for libsox
+                    pipe.closeWrite();
+                }
+            }
+        }, "sox-channel-source");
+        pump.setDaemon(true);
+        pump.start();
+    }
+
+    @Override
+    public void beforeClose(sox_format_t format) {
+        closing = true;
+    }
+
+    @Override
+    public void afterClose() {
+        stopPump();
+
+        IOException e = failure;
+        failure = null;
+
+        if (e != null) {
+            throw new SoxException("Could not read from channel", e);
+        }
+    }
+
+    private void stopPump() {
+        closing = true;
+
+        // no more reader, a pump blocked on the pipe fails right away; one blocked on the channel needs a nudge
+        pump.interrupt();
+        try {
+            pump.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        pipe.closeWrite();
+        pump = null;
+    }
+}
@@ -44,6 +44,14 @@ public class FileSink implements SoxSink {
         return this;
     }
 
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean isOverwrite() {
+        return overwrite;
+    }
+
     @Override
     public sox_format_t create(sox_format_t sourceFormat) {
         return Sox.openWrite(
@@ -37,6 +37,10 @@ public class FileSource implements SoxSource {
         return path(Paths.get(path));
     }
 
+    public Path getPath() {
+        return path;
+    }
+
     @Override
     public sox_format_t create() {
         return Sox.openRead(nonNull(path.toAbsolutePath().toString(), "Source is required to be specified"));
@@ -0,0 +1,43 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.format;
+
+import com.anthemengineering.sox.jna.sox_format_t;
+
+/**
+ * Optionally implemented by a {@link SoxSource} or {@link SoxSink} that needs to know when the format it creates is
+ * opened or closed, e.g. to wait for input, to read the final state of the format or to release what backs it.
+ *
+ * <p>Formats are opened and closed one at a time across the JVM. These hooks are called without holding that lock,
+ * so they are where a source or sink blocks on I/O, not {@code create}.</p>
+ */
+public interface FormatLifecycle {
+    /**
+     * Called right before the format is created.
+     */
+    void beforeOpen();
+
+    /**
+     * Called right before libsox closes (and frees) the format.
+     */
+    void beforeClose(sox_format_t format);
+
+    /**
+     * Called once the format has been closed, even if closing it failed.
+     */
+    void afterClose();
+}
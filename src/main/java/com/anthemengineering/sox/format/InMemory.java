@@ -16,7 +16,9 @@
 
 package com.anthemengineering.sox.format;
 
+import com.anthemengineering.sox.OutputLengthProbe;
 import com.anthemengineering.sox.Sox;
+import com.anthemengineering.sox.SoxException;
 import com.anthemengineering.sox.jna.size_t;
 import com.anthemengineering.sox.jna.sox_format_t;
 import com.sun.jna.Native;
@@ -27,45 +29,186 @@ import java.nio.charset.StandardCharsets;
 import static com.anthemengineering.sox.ValidationUtil.nonNull;
 import static com.anthemengineering.sox.ValidationUtil.positiveNumber;
 
-public class InMemory implements SoxSource, SoxSink {
+/**
+ * A source or sink over a direct buffer of a fixed size.
+ *
+ * <p>When used as a sink, {@link #getOutputLength()} and {@link #getOutput()} give the encoded bytes once the format
+ * has been closed (e.g. by {@link com.anthemengineering.sox.SoxEffectsChain#close()}). The length includes what the
+ * format writes while it is being closed (trailers, last blocks, padding), see {@link OutputLengthProbe}.</p>
+ *
+ * <p>Arrays and heap buffers are copied into a direct buffer of their own, as JNA can not pin a heap array for as
+ * long as libsox holds on to it; like buffers passed in, it is left to the garbage collector, so the same source can
+ * be read by any number of chains. Only buffers the library allocates for itself come from the
+ * {@link com.anthemengineering.sox.DirectBufferPool}.</p>
+ */
+public class InMemory implements SoxSource, SoxSink, FormatLifecycle {
     private ByteBuffer buffer;
     private long bufferSize;
+    private long outputLength = -1;
+    private OutputLengthProbe outputLengthProbe;
+    private boolean readOnly;
 
     public InMemory buffer(byte[] buffer) {
-        this.buffer = ByteBuffer.allocateDirect(buffer.length);
-        this.buffer.put(buffer);
-        this.bufferSize = buffer.length;
+        return buffer(buffer, 0, buffer.length);
+    }
+
+    /**
+     * Copies {@code length} bytes of the array, from {@code offset}, into a direct buffer.
+     */
+    public InMemory buffer(byte[] buffer, int offset, int length) {
+        return copy(ByteBuffer.wrap(buffer, offset, length));
+    }
+
+    /**
+     * Uses the bytes between the position and the limit of the buffer, which is left untouched. Direct buffers are
+     * used in place; heap buffers, including read-only and sliced ones, have only that range copied into a direct
+     * buffer.
+     */
+    public InMemory buffer(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            return copy(buffer.duplicate());
+        }
+
+        this.buffer = buffer.slice();
+        this.bufferSize = this.buffer.capacity();
+        this.readOnly = buffer.isReadOnly();
 
         return this;
     }
 
+    /**
+     * Uses the first {@code bufferSize} bytes of the buffer, regardless of its position. Direct buffers are used in
+     * place; heap buffers have only those bytes copied into a direct buffer.
+     */
     public InMemory buffer(ByteBuffer buffer, long bufferSize) {
         if (!buffer.isDirect()) {
-            return buffer(buffer.array());
-        } else {
-            this.buffer = buffer;
-            this.bufferSize = bufferSize;
+            ByteBuffer region = buffer.duplicate();
+            region.clear();
+            region.limit((int) Math.min(bufferSize, region.capacity()));
+
+            return copy(region);
         }
 
+        this.buffer = buffer;
+        this.bufferSize = bufferSize;
+        this.readOnly = buffer.isReadOnly();
+
+        return this;
+    }
+
+    private InMemory copy(ByteBuffer region) {
+        this.bufferSize = region.remaining();
+        this.buffer = ByteBuffer.allocateDirect(region.remaining());
+        this.buffer.put(region);
+        this.readOnly = false;
+
+        return this;
+    }
+
+    /**
+     * @return a view over the first {@code bufferSize} bytes of the buffer.
+     */
+    public ByteBuffer getBuffer() {
+        ByteBuffer view = nonNull(buffer, "Buffer is not set.").duplicate();
+        view.clear();
+        view.limit((int) bufferSize);
+
+        return view.slice();
+    }
+
+    public long getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Copies output encoded elsewhere (e.g. by a {@link com.anthemengineering.sox.SoxWorkerPool} worker) into the
+     * buffer, as if it had been written to this sink by libsox.
+     */
+    public InMemory output(ByteBuffer encoded) {
+        if (encoded.remaining() > bufferSize) {
+            throw new SoxException(String.format("Output of %1$d bytes does not fit in the buffer of %2$d bytes",
+                    encoded.remaining(),
+                    bufferSize));
+        }
+
+        outputLength = encoded.remaining();
+        getBuffer().put(encoded.duplicate());
+
         return this;
     }
 
     @Override
     public sox_format_t create() {
         return Sox.openRead(
-                nonNull(Native.getDirectBufferPointer(buffer), "Unable to get direct memory pointer"),
+                nonNull(Native.getDirectBufferPointer(nonNull(buffer, "Buffer is not set.")),
+                        "Unable to get direct memory pointer"),
                 new size_t(positiveNumber(bufferSize, "BufferSize is not set.")));
     }
 
 
     @Override
     public sox_format_t create(sox_format_t format) {
-        return Sox.openWrite(
-                nonNull(Native.getDirectBufferPointer(buffer), "Unable to get direct memory pointer"),
+        if (readOnly) {
+            throw new SoxException("Buffer is read-only");
+        }
+
+        outputLength = -1;
+
+        sox_format_t opened = Sox.openWrite(
+                nonNull(Native.getDirectBufferPointer(nonNull(buffer, "Buffer is not set.")),
+                        "Unable to get direct memory pointer"),
                 new size_t(positiveNumber(bufferSize, "BufferSize is not set.")),
                 format.signal,
                 format.encoding,
-                format.filetype.getString(0, StandardCharsets.US_ASCII.name()),
+                format.filetype != null ? format.filetype.getString(0, StandardCharsets.US_ASCII.name()) : null,
                 null);
+        outputLengthProbe = OutputLengthProbe.install(opened);
+
+        return opened;
+    }
+
+    @Override
+    public void beforeOpen() {
+        // no op
+    }
+
+    @Override
+    public void beforeClose(sox_format_t format) {
+        if ((Byte) format.readField("mode") != 'r') {
+            // the length when the format has nothing left to write on close
+            outputLength = (Long) format.readField("tell_off");
+        }
+    }
+
+    @Override
+    public void afterClose() {
+        if (outputLengthProbe != null) {
+            if (outputLengthProbe.getLength() >= 0) {
+                outputLength = Math.min(outputLengthProbe.getLength(), bufferSize);
+            }
+            outputLengthProbe = null;
+        }
+    }
+
+    /**
+     * @return the number of bytes written to the buffer, or -1 if no output has been closed yet.
+     */
+    public long getOutputLength() {
+        return outputLength;
+    }
+
+    /**
+     * @return a view over exactly the bytes written to the buffer, without copying them.
+     */
+    public ByteBuffer getOutput() {
+        if (outputLength < 0) {
+            throw new SoxException("Output is only available once the sink has been closed");
+        }
+
+        ByteBuffer output = buffer.duplicate();
+        output.clear();
+        output.limit((int) outputLength);
+
+        return output.slice();
     }
 }
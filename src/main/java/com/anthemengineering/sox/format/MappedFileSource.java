@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.format;
+
+import com.anthemengineering.sox.Sox;
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.jna.CLibrary;
+import com.anthemengineering.sox.jna.size_t;
+import com.anthemengineering.sox.jna.sox_format_t;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static com.anthemengineering.sox.ValidationUtil.nonNull;
+
+/**
+ * Reads a local file through a read-only memory mapping handed to libsox as it would be for {@link InMemory}, so
+ * decoding reads straight from the page cache instead of copying the file through stdio buffers.
+ *
+ * <p>The file is mapped with {@code mmap} rather than {@link java.nio.channels.FileChannel#map}, so files over 2GB can
+ * be mapped whole and the mapping is released as soon as the format is closed instead of when the garbage collector
+ * gets to it. POSIX only.</p>
+ *
+ * <p>As with any memory source, libsox detects the type from the content. Formats it can not detect that way (e.g.
+ * raw samples) need their {@link #type(String)}.</p>
+ *
+ * <p>A source can be reused once its format has been closed, but only holds one mapping at a time: it can not be
+ * opened again while it is open.</p>
+ */
+public class MappedFileSource implements SoxSource, FormatLifecycle {
+    private static final long MAP_FAILED = -1;
+
+    private Path path;
+    private String type;
+
+    private Pointer mapping;
+    private size_t mappingLength;
+
+    public MappedFileSource path(Path path) {
+        this.path = path;
+
+        return this;
+    }
+
+    public MappedFileSource path(String path) {
+        return path(Paths.get(path));
+    }
+
+    /**
+     * @param type the file type, e.g. "raw", when it can not be detected from the content.
+     */
+    public MappedFileSource type(String type) {
+        this.type = type;
+
+        return this;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public sox_format_t create() {
+        if (mapping != null) {
+            throw new SoxException("Mapped file source is already open");
+        }
+
+        String file = nonNull(path, "Source is required to be specified").toAbsolutePath().toString();
+        long length;
+
+        try {
+            length = Files.size(path);
+        } catch (IOException e) {
+            throw new SoxException("Could not open " + file + " for read", e);
+        }
+
+        if (length == 0) {
+            throw new SoxException("Could not open " + file + " for read: the file is empty");
+        }
+
+        map(file, length);
+
+        try {
+            return Sox.openRead(mapping, mappingLength, null, null, type);
+        } catch (RuntimeException e) {
+            unmap();
+            throw e;
+        }
+    }
+
+    @Override
+    public void beforeOpen() {
+        // no op
+    }
+
+    @Override
+    public void beforeClose(sox_format_t format) {
+        // no op
+    }
+
+    @Override
+    public void afterClose() {
+        unmap();
+    }
+
+    private void map(String file, long length) {
+        int fd = CLibrary.INSTANCE.open(file, CLibrary.O_RDONLY);
+
+        if (fd < 0) {
+            throw new SoxException("Could not open " + file + " for read: errno " + Native.getLastError());
+        }
+
+        try {
+            size_t size = new size_t(length);
+            Pointer p = CLibrary.INSTANCE.mmap(null, size, CLibrary.PROT_READ, CLibrary.MAP_PRIVATE, fd,
+                    new NativeLong(0));
+
+            if (Pointer.nativeValue(p) == MAP_FAILED) {
+                throw new SoxException("Could not map " + file + ": errno " + Native.getLastError());
+            }
+
+            // formats are decoded front to back, let the kernel read ahead aggressively
+            CLibrary.INSTANCE.madvise(p, size, CLibrary.MADV_SEQUENTIAL);
+
+            this.mapping = p;
+            this.mappingLength = size;
+        } finally {
+            // the mapping keeps the file open
+            CLibrary.INSTANCE.close(fd);
+        }
+    }
+
+    private void unmap() {
+        if (mapping != null) {
+            CLibrary.INSTANCE.munmap(mapping, mappingLength);
+            mapping = null;
+            mappingLength = null;
+        }
+    }
+}
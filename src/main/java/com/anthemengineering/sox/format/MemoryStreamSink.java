@@ -0,0 +1,173 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.format;
+
+import com.anthemengineering.sox.Sox;
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.SoxLeakDetector;
+import com.anthemengineering.sox.jna.size_t;
+import com.anthemengineering.sox.jna.sox_format_t;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.PointerByReference;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A sink that lets libsox grow its output buffer as needed (see {@code open_memstream(3)}), instead of writing into
+ * a buffer that has to be sized up front like {@link InMemory}.
+ *
+ * <p>The encoded output lives in native memory owned by this sink: once the format has been closed (e.g. by
+ * {@link com.anthemengineering.sox.SoxEffectsChain#close()}), {@link #getBuffer()} returns a view over it without
+ * copying, and {@link #release()} must be called to free it. Until then libsox may still move the buffer, so
+ * {@link #size()} and {@link #getBuffer()} throw. Output that is never released is freed by the
+ * {@link SoxLeakDetector} once the sink has been garbage collected.</p>
+ */
+public class MemoryStreamSink implements SoxSink, FormatLifecycle {
+    private String type;
+    private PointerByReference buffer;
+    private size_t.ByReference bufferSize;
+    private boolean closed;
+    private SoxLeakDetector.Tracker leakTracker;
+
+    /**
+     * @param type the file type to encode to, by default the type of the source.
+     */
+    public MemoryStreamSink type(String type) {
+        this.type = type;
+
+        return this;
+    }
+
+    @Override
+    public sox_format_t create(sox_format_t format) {
+        if (buffer != null) {
+            throw new SoxException("Memory stream sink has already been opened, release it before reusing it");
+        }
+
+        PointerByReference openedBuffer = new PointerByReference();
+        size_t.ByReference openedBufferSize = new size_t.ByReference();
+
+        sox_format_t opened = Sox.openWrite(
+                openedBuffer,
+                openedBufferSize,
+                format.signal,
+                format.encoding,
+                type != null ? type : format.filetype != null ? format.filetype.getString(0, StandardCharsets.US_ASCII.name()) : null,
+                null);
+
+        // only in use once opened, a sink that failed to open can be tried again
+        buffer = openedBuffer;
+        bufferSize = openedBufferSize;
+
+        return opened;
+    }
+
+    @Override
+    public void beforeOpen() {
+        // no op
+    }
+
+    @Override
+    public void beforeClose(sox_format_t format) {
+        // no op
+    }
+
+    @Override
+    public void afterClose() {
+        // the buffer no longer moves once the stream is closed
+        closed = true;
+        leakTracker = SoxLeakDetector.track(this, new Free(buffer));
+    }
+
+    /**
+     * @return the number of bytes written.
+     * @throws SoxException if the format has not been closed yet.
+     */
+    public long size() {
+        assertClosed();
+
+        return bufferSize.getValue().longValue();
+    }
+
+    /**
+     * @return a view over the encoded output, valid until {@link #release()}.
+     * @throws SoxException if the format has not been closed yet.
+     */
+    public ByteBuffer getBuffer() {
+        assertClosed();
+
+        Pointer p = buffer.getValue();
+
+        if (p == null) {
+            return ByteBuffer.allocateDirect(0);
+        }
+
+        return p.getByteBuffer(0, size());
+    }
+
+    /**
+     * Frees the native output buffer; buffers returned by {@link #getBuffer()} must no longer be used.
+     *
+     * @throws SoxException if the format has not been closed yet, libsox still writes to the buffer.
+     */
+    public void release() {
+        if (buffer != null && !closed) {
+            throw new SoxException("Memory stream sink is still open");
+        }
+
+        if (leakTracker != null) {
+            leakTracker.close();
+            leakTracker = null;
+        }
+
+        if (buffer != null) {
+            new Free(buffer).run();
+        }
+
+        buffer = null;
+        bufferSize = null;
+        closed = false;
+    }
+
+    private void assertClosed() {
+        if (!closed) {
+            throw new SoxException("Output is only available once the sink has been closed");
+        }
+    }
+
+    /**
+     * Frees the buffer allocated by {@code open_memstream}, without referring to the sink.
+     */
+    private static final class Free implements Runnable {
+        private final PointerByReference buffer;
+
+        private Free(PointerByReference buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void run() {
+            Pointer p = buffer.getValue();
+
+            if (p != null) {
+                Native.free(Pointer.nativeValue(p));
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.format;
+
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.jna.CLibrary;
+import com.anthemengineering.sox.jna.size_t;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An OS pipe, one end of which is opened by libsox by path ({@code /dev/fd/N}) while the other is pumped from Java,
+ * so that libsox streams from or to Java without knowing about it. POSIX only.
+ */
+final class NativePipe {
+    private static final int F_SETPIPE_SZ = 1031;
+
+    private int readFd;
+    private int writeFd;
+
+    /**
+     * @param capacity the buffer size requested from the kernel, on Linux; elsewhere the default applies.
+     */
+    NativePipe(int capacity) {
+        int[] fds = new int[2];
+
+        if (CLibrary.INSTANCE.pipe(fds) != 0) {
+            throw new SoxException("Could not create pipe: errno " + Native.getLastError());
+        }
+
+        this.readFd = fds[0];
+        this.writeFd = fds[1];
+
+        if (Platform.isLinux()) {
+            // best effort, capped by /proc/sys/fs/pipe-max-size
+            CLibrary.INSTANCE.fcntl(writeFd, F_SETPIPE_SZ, capacity);
+        }
+    }
+
+    String readPath() {
+        return "/dev/fd/" + readFd;
+    }
+
+    String writePath() {
+        return "/dev/fd/" + writeFd;
+    }
+
+    /**
+     * Writes the remaining bytes of a direct buffer, blocking while the pipe is full.
+     */
+    void write(ByteBuffer buffer) throws IOException {
+        Pointer p = Native.getDirectBufferPointer(buffer);
+
+        while (buffer.hasRemaining()) {
+            long n = CLibrary.INSTANCE.write(writeFd, p.share(buffer.position()), new size_t(buffer.remaining()))
+                    .longValue();
+
+            if (n < 0) {
+                int errno = Native.getLastError();
+                if (errno != CLibrary.EINTR && errno != CLibrary.EAGAIN) {
+                    throw new IOException("Could not write to pipe: errno " + errno);
+                }
+            } else {
+                buffer.position(buffer.position() + (int) n);
+            }
+        }
+    }
+
+    /**
+     * Reads into the remaining space of a direct buffer, blocking until something is available.
+     *
+     * @return the number of bytes read, -1 once the other end has been closed.
+     */
+    int read(ByteBuffer buffer) throws IOException {
+        Pointer p = Native.getDirectBufferPointer(buffer);
+
+        while (true) {
+            long n = CLibrary.INSTANCE.read(readFd, p.share(buffer.position()), new size_t(buffer.remaining()))
+                    .longValue();
+
+            if (n > 0) {
+                buffer.position(buffer.position() + (int) n);
+                return (int) n;
+            } else if (n == 0) {
+                return -1;
+            }
+
+            int errno = Native.getLastError();
+            if (errno != CLibrary.EINTR && errno != CLibrary.EAGAIN) {
+                throw new IOException("Could not read from pipe: errno " + errno);
+            }
+        }
+    }
+
+    synchronized void closeRead() {
+        if (readFd >= 0) {
+            CLibrary.INSTANCE.close(readFd);
+            readFd = -1;
+        }
+    }
+
+    synchronized void closeWrite() {
+        if (writeFd >= 0) {
+            CLibrary.INSTANCE.close(writeFd);
+            writeFd = -1;
+        }
+    }
+}
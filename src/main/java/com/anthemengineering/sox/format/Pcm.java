@@ -0,0 +1,89 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.format;
+
+import com.anthemengineering.sox.SoxException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Conversions between {@code sox_sample_t}s and signed integer PCM of 8 to 32 bits, rounding and clipping like
+ * libsox does.
+ */
+final class Pcm {
+    private Pcm() {}
+
+    static void validate(int bits) {
+        if (bits != 8 && bits != 16 && bits != 24 && bits != 32) {
+            throw new SoxException("Bits must be 8, 16, 24 or 32: " + bits);
+        }
+    }
+
+    static int decode(ByteBuffer bytes, int bytesPerSample) {
+        switch (bytesPerSample) {
+            case 1:
+                return bytes.get() << 24;
+            case 2:
+                return bytes.getShort() << 16;
+            case 3: {
+                int b0 = bytes.get() & 0xff;
+                int b1 = bytes.get() & 0xff;
+                int b2 = bytes.get() & 0xff;
+
+                return bytes.order() == ByteOrder.LITTLE_ENDIAN
+                        ? (b2 << 24) | (b1 << 16) | (b0 << 8)
+                        : (b0 << 24) | (b1 << 16) | (b2 << 8);
+            }
+            default:
+                return bytes.getInt();
+        }
+    }
+
+    /**
+     * @return {@code true} if the sample had to be clipped.
+     */
+    static boolean encode(int sample, ByteBuffer bytes, int bytesPerSample) {
+        if (bytesPerSample == 4) {
+            bytes.putInt(sample);
+            return false;
+        }
+
+        int shift = 32 - bytesPerSample * 8;
+        int max = Integer.MAX_VALUE >> shift;
+        long rounded = ((long) sample + (1L << (shift - 1))) >> shift;
+        boolean clipped = rounded > max;
+        int value = clipped ? max : (int) rounded;
+
+        switch (bytesPerSample) {
+            case 1:
+                bytes.put((byte) value);
+                break;
+            case 2:
+                bytes.putShort((short) value);
+                break;
+            default:
+                if (bytes.order() == ByteOrder.LITTLE_ENDIAN) {
+                    bytes.put((byte) value).put((byte) (value >> 8)).put((byte) (value >> 16));
+                } else {
+                    bytes.put((byte) (value >> 16)).put((byte) (value >> 8)).put((byte) value);
+                }
+        }
+
+        return clipped;
+    }
+}
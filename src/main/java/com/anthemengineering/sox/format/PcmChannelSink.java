@@ -0,0 +1,135 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.format;
+
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.jna.sox_format_t;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import static com.anthemengineering.sox.ValidationUtil.nonNull;
+import static com.anthemengineering.sox.ValidationUtil.positiveNumber;
+
+/**
+ * Writes raw interleaved signed PCM to a (blocking) {@link WritableByteChannel} as libsox produces it, through a
+ * buffer of a fixed size. The rate and channels are those of the chain's source. The channel is not closed.
+ */
+public class PcmChannelSink extends SampleSink {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private WritableByteChannel channel;
+    private int bits = 16;
+    private ByteOrder order = ByteOrder.LITTLE_ENDIAN;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    private ByteBuffer buffer;
+    private long clips;
+
+    public PcmChannelSink channel(WritableByteChannel channel) {
+        this.channel = channel;
+
+        return this;
+    }
+
+    /**
+     * @param bits 8, 16 (the default), 24 or 32.
+     */
+    public PcmChannelSink bits(int bits) {
+        Pcm.validate(bits);
+        this.bits = bits;
+
+        return this;
+    }
+
+    /**
+     * @param order the byte order of the samples, little endian by default.
+     */
+    public PcmChannelSink order(ByteOrder order) {
+        this.order = nonNull(order, "Order is required to be specified");
+
+        return this;
+    }
+
+    public PcmChannelSink bufferSize(int bufferSize) {
+        this.bufferSize = (int) positiveNumber(bufferSize, "Buffer size must be positive");
+
+        return this;
+    }
+
+    /**
+     * @return the number of samples that had to be clipped to fit in the requested bits.
+     */
+    public long getClips() {
+        return clips;
+    }
+
+    @Override
+    public int getPrecision() {
+        return bits;
+    }
+
+    @Override
+    public sox_format_t create(sox_format_t sourceFormat) {
+        nonNull(channel, "Channel is required to be specified");
+
+        int bytesPerSample = bits / 8;
+        buffer = ByteBuffer.allocateDirect(Math.max(bufferSize / bytesPerSample, 1) * bytesPerSample).order(order);
+        clips = 0;
+
+        return super.create(sourceFormat);
+    }
+
+    @Override
+    protected void write(IntBuffer samples) {
+        int bytesPerSample = bits / 8;
+
+        while (samples.hasRemaining()) {
+            if (buffer.remaining() < bytesPerSample) {
+                drain();
+            }
+
+            int count = Math.min(samples.remaining(), buffer.remaining() / bytesPerSample);
+            for (int i = 0; i < count; i++) {
+                if (Pcm.encode(samples.get(), buffer, bytesPerSample)) {
+                    clips++;
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void stop() {
+        drain();
+    }
+
+    private void drain() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new SoxException("Could not write to channel", e);
+        } finally {
+            buffer.clear();
+        }
+    }
+}
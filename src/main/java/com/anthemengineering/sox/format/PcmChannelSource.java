@@ -0,0 +1,168 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.format;
+
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.jna.sox_format_t;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import static com.anthemengineering.sox.ValidationUtil.nonNull;
+import static com.anthemengineering.sox.ValidationUtil.positiveNumber;
+
+/**
+ * Reads raw interleaved signed PCM from a (blocking) {@link ReadableByteChannel} as libsox needs it, through a
+ * buffer of a fixed size, so the whole stream is never held in memory. The channel is not closed.
+ */
+public class PcmChannelSource extends SampleSource {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private ReadableByteChannel channel;
+    private double rate;
+    private int channels;
+    private int bits = 16;
+    private ByteOrder order = ByteOrder.LITTLE_ENDIAN;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    private ByteBuffer buffer;
+    private boolean eof;
+
+    public PcmChannelSource channel(ReadableByteChannel channel) {
+        this.channel = channel;
+
+        return this;
+    }
+
+    public PcmChannelSource rate(double rate) {
+        this.rate = rate;
+
+        return this;
+    }
+
+    public PcmChannelSource channels(int channels) {
+        this.channels = (int) positiveNumber(channels, "Channels must be positive");
+
+        return this;
+    }
+
+    /**
+     * @param bits 8, 16 (the default), 24 or 32.
+     */
+    public PcmChannelSource bits(int bits) {
+        Pcm.validate(bits);
+        this.bits = bits;
+
+        return this;
+    }
+
+    /**
+     * @param order the byte order of the samples, little endian by default.
+     */
+    public PcmChannelSource order(ByteOrder order) {
+        this.order = nonNull(order, "Order is required to be specified");
+
+        return this;
+    }
+
+    public PcmChannelSource bufferSize(int bufferSize) {
+        this.bufferSize = (int) positiveNumber(bufferSize, "Buffer size must be positive");
+
+        return this;
+    }
+
+    @Override
+    public double getRate() {
+        return rate;
+    }
+
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public int getPrecision() {
+        return bits;
+    }
+
+    @Override
+    public sox_format_t create() {
+        nonNull(channel, "Channel is required to be specified");
+        positiveNumber(channels, "Channels are required to be specified");
+        if (!(rate > 0)) {
+            throw new SoxException("Rate is required to be specified");
+        }
+
+        int bytesPerFrame = channels * bits / 8;
+        buffer = ByteBuffer.allocateDirect(Math.max(bufferSize / bytesPerFrame, 1) * bytesPerFrame).order(order);
+        buffer.limit(0);
+        eof = false;
+
+        return super.create();
+    }
+
+    @Override
+    protected int read(IntBuffer samples) {
+        int bytesPerSample = bits / 8;
+        int wanted = samples.remaining() - samples.remaining() % channels;
+        int read = 0;
+
+        while (read < wanted) {
+            if (buffer.remaining() < bytesPerSample && !fill()) {
+                break;
+            }
+
+            int count = Math.min(wanted - read, buffer.remaining() / bytesPerSample);
+            for (int i = 0; i < count; i++) {
+                samples.put(Pcm.decode(buffer, bytesPerSample));
+            }
+            read += count;
+        }
+
+        // a partial frame at the end of the stream is dropped
+        return read - read % channels;
+    }
+
+    private boolean fill() {
+        if (eof) {
+            return false;
+        }
+
+        int bytesPerSample = bits / 8;
+
+        buffer.compact();
+        try {
+            // a blocking read returns as soon as something is available, only wait for a whole sample
+            do {
+                if (channel.read(buffer) < 0) {
+                    eof = true;
+                    break;
+                }
+            } while (buffer.position() < bytesPerSample);
+        } catch (IOException e) {
+            throw new SoxException("Could not read from channel", e);
+        } finally {
+            buffer.flip();
+        }
+
+        return buffer.remaining() >= bytesPerSample;
+    }
+}
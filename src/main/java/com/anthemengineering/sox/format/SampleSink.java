@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.format;
+
+import com.anthemengineering.sox.Sox;
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.jna.JavaFormatHandler;
+import com.anthemengineering.sox.jna.size_t;
+import com.anthemengineering.sox.jna.sox_format_t;
+import com.sun.jna.Pointer;
+
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A sink whose samples are consumed in Java, e.g. encoded to a stream (see {@link PcmChannelSink}). It takes the
+ * rate and channels of the chain's source.
+ *
+ * <p>{@link #write(IntBuffer)} is called by libsox as the chain produces samples, with a view over its own buffer.
+ * An exception thrown while writing ends the flow early and is rethrown when the format is closed (e.g. by
+ * {@link com.anthemengineering.sox.SoxEffectsChain#close()}).</p>
+ */
+public abstract class SampleSink implements SoxSink, FormatLifecycle {
+    // referenced from native memory, has to stay reachable as long as this sink
+    private final JavaFormatHandler.Write writeCallback = new JavaFormatHandler.Write() {
+        @Override
+        public size_t apply(Pointer ft, Pointer buf, size_t len) {
+            try {
+                long samples = len.longValue();
+                if (samples == 0) {
+                    return new size_t(0);
+                }
+
+                write(buf.getByteBuffer(0, samples * 4).order(ByteOrder.nativeOrder()).asIntBuffer());
+
+                return len;
+            } catch (Throwable t) {
+                failure = t;
+                return new size_t(0);
+            }
+        }
+    };
+
+    private volatile Throwable failure;
+
+    /**
+     * Writes interleaved samples; all of them have to be consumed.
+     */
+    protected abstract void write(IntBuffer samples);
+
+    /**
+     * @return the number of significant bits of the samples written, 32 by default.
+     */
+    public int getPrecision() {
+        return 32;
+    }
+
+    /**
+     * Called before the format is closed, once all samples have been written, e.g. to flush the underlying stream.
+     */
+    protected void stop() {
+        // no op
+    }
+
+    @Override
+    public sox_format_t create(sox_format_t sourceFormat) {
+        failure = null;
+
+        JavaFormatHandler handler = new JavaFormatHandler();
+        handler.write = writeCallback;
+
+        return Sox.open(handler, 'w', sourceFormat.signal.rate, sourceFormat.signal.channels, getPrecision());
+    }
+
+    @Override
+    public void beforeOpen() {
+        // no op
+    }
+
+    @Override
+    public void beforeClose(sox_format_t format) {
+        if (failure == null) {
+            try {
+                stop();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+    }
+
+    @Override
+    public void afterClose() {
+        Throwable t = failure;
+        failure = null;
+
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new SoxException("Could not write samples", t);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.format;
+
+import com.anthemengineering.sox.Sox;
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.jna.JavaFormatHandler;
+import com.anthemengineering.sox.jna.size_t;
+import com.anthemengineering.sox.jna.sox_format_t;
+import com.sun.jna.Pointer;
+
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A source whose samples are produced in Java, e.g. decoded from a stream (see {@link PcmChannelSource}).
+ *
+ * <p>{@link #read(IntBuffer)} is called by libsox as the chain needs samples, with a view over its own buffer.
+ * An exception thrown while reading ends the input early and is rethrown when the format is closed (e.g. by
+ * {@link com.anthemengineering.sox.SoxEffectsChain#close()}).</p>
+ */
+public abstract class SampleSource implements SoxSource, FormatLifecycle {
+    // referenced from native memory, has to stay reachable as long as this source
+    private final JavaFormatHandler.Read readCallback = new JavaFormatHandler.Read() {
+        @Override
+        public size_t apply(Pointer ft, Pointer buf, size_t len) {
+            try {
+                long samples = len.longValue();
+                if (samples == 0) {
+                    return new size_t(0);
+                }
+
+                IntBuffer view = buf.getByteBuffer(0, samples * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+                int read = read(view);
+
+                return new size_t(read < 0 ? 0 : read);
+            } catch (Throwable t) {
+                failure = t;
+                return new size_t(0);
+            }
+        }
+    };
+
+    private volatile Throwable failure;
+
+    /**
+     * Reads interleaved samples.
+     *
+     * @param samples where to put the samples, up to its limit. libsox only keeps whole frames.
+     * @return the number of samples read, 0 once the source is exhausted.
+     */
+    protected abstract int read(IntBuffer samples);
+
+    public abstract double getRate();
+
+    public abstract int getChannels();
+
+    /**
+     * @return the number of significant bits of the samples, 32 by default.
+     */
+    public int getPrecision() {
+        return 32;
+    }
+
+    /**
+     * Called when the format is closed, e.g. to release the underlying stream.
+     */
+    protected void stop() {
+        // no op
+    }
+
+    @Override
+    public sox_format_t create() {
+        failure = null;
+
+        JavaFormatHandler handler = new JavaFormatHandler();
+        handler.read = readCallback;
+
+        return Sox.open(handler, 'r', getRate(), getChannels(), getPrecision());
+    }
+
+    @Override
+    public void beforeOpen() {
+        // no op
+    }
+
+    @Override
+    public void beforeClose(sox_format_t format) {
+        // no op
+    }
+
+    @Override
+    public void afterClose() {
+        stop();
+
+        Throwable t = failure;
+        failure = null;
+
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new SoxException("Could not read samples", t);
+        }
+    }
+}
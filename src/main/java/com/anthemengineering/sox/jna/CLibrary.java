@@ -0,0 +1,67 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.jna;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+/**
+ * The few C library calls needed to hand streams to libsox as file descriptors, files to libsox as mapped memory,
+ * to format libsox's messages and to measure the streams it writes.
+ */
+public interface CLibrary extends Library {
+    CLibrary INSTANCE = Native.load(Platform.C_LIBRARY_NAME, CLibrary.class);
+
+    int EINTR = 4;
+    int EAGAIN = Platform.isMac() ? 35 : 11;
+
+    int O_RDONLY = 0;
+    int PROT_READ = 1;
+    int MAP_PRIVATE = 2;
+    int MADV_SEQUENTIAL = 2;
+    int SEEK_END = 2;
+
+    int pipe(int[] fds);
+
+    int close(int fd);
+
+    NativeLong read(int fd, Pointer buf, size_t count);
+
+    NativeLong write(int fd, Pointer buf, size_t count);
+
+    int fcntl(int fd, int cmd, Object... args);
+
+    int open(String path, int flags);
+
+    Pointer mmap(Pointer addr, size_t length, int prot, int flags, int fd, NativeLong offset);
+
+    int munmap(Pointer addr, size_t length);
+
+    int madvise(Pointer addr, size_t length, int advice);
+
+    int fseeko(Pointer stream, NativeLong offset, int whence);
+
+    NativeLong ftello(Pointer stream);
+
+    /**
+     * @param ap a {@code va_list} as received by a callback, where it has decayed to a pointer.
+     */
+    int vsnprintf(Pointer str, size_t size, Pointer format, Pointer ap);
+}
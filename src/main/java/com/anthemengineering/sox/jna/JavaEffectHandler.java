@@ -0,0 +1,59 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.jna;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Pointer;
+import com.sun.jna.Structure;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Same layout as {@link sox_effect_handler_t}, with callbacks taking plain {@link Pointer}s so that libsox calling
+ * into Java never makes JNA read a whole {@link sox_effect_t}. Only used for effects implemented in Java, unused
+ * callbacks are left {@code null} and get libsox's defaults.
+ */
+public class JavaEffectHandler extends Structure {
+    public interface Lifecycle extends Callback {
+        int apply(Pointer effp);
+    }
+
+    public interface Flow extends Callback {
+        int apply(Pointer effp, Pointer ibuf, Pointer obuf, Pointer isamp, Pointer osamp);
+    }
+
+    public interface Drain extends Callback {
+        int apply(Pointer effp, Pointer obuf, Pointer osamp);
+    }
+
+    public Pointer name;
+    public Pointer usage;
+    public int flags;
+    public Pointer getopts;
+    public Lifecycle start;
+    public Flow flow;
+    public Drain drain;
+    public Lifecycle stop;
+    public Pointer kill;
+    public size_t priv_size = new size_t();
+
+    @Override
+    protected List<String> getFieldOrder() {
+        return Arrays.asList("name", "usage", "flags", "getopts", "start", "flow", "drain", "stop", "kill", "priv_size");
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.jna;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Pointer;
+import com.sun.jna.Structure;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Same layout as {@link sox_format_handler_t}, with sample callbacks taking plain {@link Pointer}s so that libsox
+ * calling into Java never makes JNA read a whole {@link sox_format_t}. Only used for formats implemented in Java,
+ * unused callbacks are left {@code null}.
+ */
+public class JavaFormatHandler extends Structure {
+    public interface Read extends Callback {
+        size_t apply(Pointer ft, Pointer buf, size_t len);
+    }
+
+    public interface Write extends Callback {
+        size_t apply(Pointer ft, Pointer buf, size_t len);
+    }
+
+    public interface Stop extends Callback {
+        int apply(Pointer ft);
+    }
+
+    public int sox_lib_version_code;
+    public Pointer description;
+    public Pointer names;
+    public int flags;
+    public Pointer startread;
+    public Read read;
+    public Pointer stopread;
+    public Pointer startwrite;
+    public Write write;
+    public Pointer stopwrite;
+    public Pointer seek;
+    public Pointer write_formats;
+    public Pointer write_rates;
+    public size_t priv_size = new size_t();
+
+    @Override
+    protected List<String> getFieldOrder() {
+        return Arrays.asList("sox_lib_version_code", "description", "names", "flags", "startread", "read", "stopread",
+                "startwrite", "write", "stopwrite", "seek", "write_formats", "write_rates", "priv_size");
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.jna;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Pointer;
+
+/**
+ * {@code sox_output_message_handler_t} as it can be implemented in Java: the {@code va_list} is received as the
+ * pointer it decays to, which the varargs of {@link SoxLibrary.sox_output_message_handler_t} can not express.
+ */
+public interface OutputMessageHandler extends Callback {
+    /**
+     * @param level    1 = FAIL, 2 = WARN, 3 = INFO, 4 = DEBUG, 5 = DEBUG_MORE, 6 = DEBUG_MOST.
+     * @param filename the libsox source file the message comes from, may be null.
+     * @param fmt      a printf format string.
+     * @param ap       the {@code va_list} of the format arguments, only valid during the call.
+     */
+    void apply(int level, Pointer filename, Pointer fmt, Pointer ap);
+}
@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.jna;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+import java.nio.IntBuffer;
+
+/**
+ * Direct mapped (see {@link Native#register(Class, String)}) bindings for the libsox calls made for every block of
+ * samples or every effect of a chain.
+ *
+ * <p>Unlike {@link SoxLibrary#INSTANCE} these calls do not go through a reflective proxy, and structures are passed
+ * as plain {@link Pointer}s so they are never auto-written before or auto-read after the call. Once a structure has
+ * been handed to one of these methods its Java fields no longer track native memory; call
+ * {@link com.sun.jna.Structure#read()} before relying on them.</p>
+ *
+ * <p>Direct mapping can be disabled with the system property {@code sox.jna.direct=false}.</p>
+ */
+public final class SoxDirect {
+    private static final boolean AVAILABLE;
+
+    static {
+        boolean available = false;
+
+        if (Boolean.parseBoolean(System.getProperty("sox.jna.direct", "true"))) {
+            try {
+                Native.register(SoxDirect.class, SoxLibrary.JNA_LIBRARY_NAME);
+                available = true;
+            } catch (UnsatisfiedLinkError e) {
+                // fall back to the interface mapping
+            }
+        }
+
+        AVAILABLE = available;
+    }
+
+    private SoxDirect() {}
+
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    public static native size_t sox_read(Pointer ft, IntBuffer buf, size_t len);
+
+    public static native size_t sox_write(Pointer ft, IntBuffer buf, size_t len);
+
+    public static native int sox_close(Pointer ft);
+
+    public static native int sox_effect_options(Pointer effp, int argc, Pointer argv);
+
+    public static native int sox_add_effect(Pointer chain, Pointer effp, Pointer in, Pointer out);
+
+    public static native int sox_flow_effects(Pointer chain, SoxLibrary.sox_flow_effects_callback callback, Pointer client_data);
+
+    public static native void sox_delete_effects_chain(Pointer ecp);
+
+    public static native long sox_effects_clips(Pointer chain);
+
+    public static native Pointer sox_create_effect(Pointer eh);
+
+    public static native void sox_delete_effect(Pointer effp);
+}
@@ -0,0 +1,34 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox;
+
+import com.anthemengineering.sox.format.InMemory;
+
+import java.nio.ByteBuffer;
+
+public final class TestSinks {
+    private TestSinks() {}
+
+    /**
+     * @return an in-memory sink with room for twice the resource, enough for what the tests do to it.
+     */
+    public static InMemory inMemorySink(TestResource resource) {
+        int size = resource.size() * 2;
+
+        return new InMemory().buffer(ByteBuffer.allocateDirect(size), size);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.ChainMetrics;
+import com.anthemengineering.sox.FlowListener;
+import com.anthemengineering.sox.SoxCancelledException;
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.SoxGlobals;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.format.FileSource;
+import com.anthemengineering.sox.format.InMemory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.anthemengineering.sox.TestSinks.inMemorySink;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class ChainMetricsApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+
+    @Test
+    public void shouldRecordEveryStage() {
+        RecordingMetrics metrics = new RecordingMetrics();
+
+        try (SoxEffectsChain chain = builder().metrics(metrics).build()) {
+            chain.flowEffects();
+        }
+
+        assertThat(metrics.effects).containsExactly("input", "vol", "highpass", "output");
+        assertThat(metrics.stages).containsExactly(0, 1, 2, 3);
+
+        // input decodes samples, every following stage consumes what the previous one produced
+        assertThat(metrics.samplesOut.get(0)).isGreaterThan(0);
+        for (int i = 1; i < metrics.stages.size(); i++) {
+            assertThat(metrics.samplesIn.get(i)).isEqualTo(metrics.samplesOut.get(i - 1));
+            assertThat(metrics.nanos.get(i)).isGreaterThan(0);
+        }
+
+        // doubling the volume of a full scale tone clips it
+        assertThat(metrics.clips.get(1)).isGreaterThan(0);
+        assertThat(metrics.clips.get(0)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCountEverySampleWithThreads() {
+        boolean previous = SoxGlobals.isUsingThreads();
+        SoxGlobals.builder().useThreads(true).apply();
+
+        try {
+            RecordingMetrics metrics = new RecordingMetrics();
+
+            try (SoxEffectsChain chain = builder().metrics(metrics).build()) {
+                chain.flowEffects();
+            }
+
+            // channels flowed in parallel must not lose counts
+            for (int i = 1; i < metrics.stages.size(); i++) {
+                assertThat(metrics.samplesIn.get(i)).isEqualTo(metrics.samplesOut.get(i - 1));
+            }
+        } finally {
+            SoxGlobals.builder().useThreads(previous).apply();
+        }
+    }
+
+    @Test
+    public void shouldRecordOnlyTheLastFlow() {
+        RecordingMetrics metrics = new RecordingMetrics();
+
+        try (SoxEffectsChain chain = builder().build()) {
+            chain.instrument(metrics);
+            chain.flowEffects();
+            metrics.clear();
+            chain.flowEffects();
+        }
+
+        // the input is exhausted, nothing more flows
+        assertThat(metrics.stages).hasSize(4);
+        assertThat(metrics.samplesOut.get(0)).isEqualTo(0);
+        assertThat(metrics.clips.get(1)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotReplaceTheOutcomeOfTheFlow() {
+        ChainMetrics failing = new ChainMetrics() {
+            @Override
+            public void record(int stage, String effect, long nanos, long samplesIn, long samplesOut, long clips) {
+                throw new IllegalStateException("metrics are down");
+            }
+        };
+
+        try (SoxEffectsChain chain = builder().metrics(failing).build()) {
+            chain.flowEffects(new FlowListener() {
+                @Override
+                public boolean onProgress(long samples, boolean done) {
+                    return false;
+                }
+            }, 0, TimeUnit.MILLISECONDS);
+
+            failBecauseExceptionWasNotThrown(SoxCancelledException.class);
+        } catch (SoxCancelledException e) {
+            assertThat(e).hasMessage("Flow was cancelled");
+        }
+    }
+
+    @Test
+    public void shouldInstrumentOnlyOnce() {
+        try (SoxEffectsChain chain = builder().metrics(new RecordingMetrics()).build()) {
+            chain.instrument(new RecordingMetrics());
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessage("Chain is already instrumented");
+        }
+    }
+
+    private static SoxEffectsChain.Builder builder() {
+        return SoxEffectsChain.builder()
+                .source(new FileSource().path("src/test/resources/ascending-fifths.wav"))
+                .sink(inMemorySink(ascendingFifths))
+                .effect("vol", "2")
+                .effect("highpass", "1000");
+    }
+
+    private static class RecordingMetrics implements ChainMetrics {
+        private final List<Integer> stages = new ArrayList<>();
+        private final List<String> effects = new ArrayList<>();
+        private final List<Long> nanos = new ArrayList<>();
+        private final List<Long> samplesIn = new ArrayList<>();
+        private final List<Long> samplesOut = new ArrayList<>();
+        private final List<Long> clips = new ArrayList<>();
+
+        @Override
+        public void record(int stage, String effect, long nanos, long samplesIn, long samplesOut, long clips) {
+            this.stages.add(stage);
+            this.effects.add(effect);
+            this.nanos.add(nanos);
+            this.samplesIn.add(samplesIn);
+            this.samplesOut.add(samplesOut);
+            this.clips.add(clips);
+        }
+
+        private void clear() {
+            stages.clear();
+            effects.clear();
+            nanos.clear();
+            samplesIn.clear();
+            samplesOut.clear();
+            clips.clear();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.ChainTemplate;
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.effects.Flanger;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.format.InMemory;
+import org.junit.Test;
+
+import static com.anthemengineering.sox.TestSinks.inMemorySink;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class ChainTemplateApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+
+    @Test
+    public void shouldProduceTheSameOutputAsABuiltChain() {
+        InMemory expected = inMemorySink(ascendingFifths);
+        try (SoxEffectsChain chain = effects().source(source()).sink(expected).build()) {
+            chain.flowEffects();
+        }
+
+        ChainTemplate template = effects().compile();
+
+        for (int i = 0; i < 3; i++) {
+            InMemory actual = inMemorySink(ascendingFifths);
+            try (SoxEffectsChain chain = template.instantiate(source(), actual)) {
+                chain.flowEffects();
+            }
+
+            assertThat(actual.getOutput()).isEqualTo(expected.getOutput());
+        }
+    }
+
+    @Test
+    public void shouldValidateOptionsWhenCompiling() {
+        try {
+            SoxEffectsChain.builder()
+                    .effect("highpass", "not-a-frequency")
+                    .compile();
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessageStartingWith("Could not set effects options on effect with name highpass");
+        }
+    }
+
+    private static SoxEffectsChain.Builder effects() {
+        return SoxEffectsChain.builder()
+                .effect(new HighpassFilter().frequency("1000"))
+                .effect(new Flanger());
+    }
+
+    private static InMemory source() {
+        return new InMemory().buffer(ascendingFifths.asByteArray());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.format.ChannelSink;
+import com.anthemengineering.sox.format.InMemory;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChannelSinkApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+    private static final int HEADER_SIZE = 44;
+
+    @Test
+    public void shouldEncodeToAChannel() {
+        byte[] wav = ascendingFifths.asByteArray();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(new InMemory().buffer(wav))
+                .sink(new ChannelSink().channel(Channels.newChannel(output)).type("wav").bufferSize(4096))
+                .build()) {
+            chain.flowEffects();
+        }
+
+        byte[] encoded = output.toByteArray();
+
+        assertThat(encoded).startsWith("RIFF".getBytes(StandardCharsets.US_ASCII));
+        // the header can not be patched on a pipe, the samples are untouched
+        assertThat(Arrays.copyOfRange(encoded, encoded.length - (wav.length - HEADER_SIZE), encoded.length))
+                .isEqualTo(Arrays.copyOfRange(wav, HEADER_SIZE, wav.length));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.format.ChannelSource;
+import com.anthemengineering.sox.format.InMemory;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.anthemengineering.sox.TestSinks.inMemorySink;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class ChannelSourceApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+
+    @Test
+    public void shouldDecodeFromAChannel() {
+        InMemory expected = inMemorySink(ascendingFifths);
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(new InMemory().buffer(ascendingFifths.asByteArray()))
+                .sink(expected)
+                .effect(new HighpassFilter().frequency("1000"))
+                .build()) {
+            chain.flowEffects();
+        }
+
+        InMemory actual = inMemorySink(ascendingFifths);
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(new ChannelSource()
+                        .channel(Channels.newChannel(new ByteArrayInputStream(ascendingFifths.asByteArray())))
+                        .type("wav")
+                        .bufferSize(4096))
+                .sink(actual)
+                .effect(new HighpassFilter().frequency("1000"))
+                .build()) {
+            chain.flowEffects();
+        }
+
+        assertThat(actual.getOutput()).isEqualTo(expected.getOutput());
+    }
+
+    @Test(timeout = 10000)
+    public void shouldFailOnInvalidStreamLargerThanThePipe() {
+        // far more than a pipe holds, so the pump is still writing when libsox gives up on the header
+        byte[] garbage = new byte[4 * 1024 * 1024];
+        Arrays.fill(garbage, (byte) 0x55);
+
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(new ChannelSource()
+                        .channel(Channels.newChannel(new ByteArrayInputStream(garbage)))
+                        .type("wav")
+                        .bufferSize(4096))
+                .sink(inMemorySink(ascendingFifths))
+                .build()) {
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            // expected
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void shouldNotHoldUpOtherChainsWhileWaitingForTheStream() throws Exception {
+        final Pipe upload = Pipe.open();
+        final CountDownLatch reading = new CountDownLatch(1);
+        final ReadableByteChannel stalled = new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                reading.countDown();
+                return upload.source().read(dst);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return upload.source().isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                upload.source().close();
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<InMemory> waiting = executor.submit(new Callable<InMemory>() {
+                @Override
+                public InMemory call() {
+                    InMemory sink = inMemorySink(ascendingFifths);
+                    try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                            .source(new ChannelSource().channel(stalled).type("wav"))
+                            .sink(sink)
+                            .build()) {
+                        chain.flowEffects();
+                    }
+
+                    return sink;
+                }
+            });
+
+            // nothing has arrived yet, another chain can still be built and closed
+            reading.await();
+            InMemory other = inMemorySink(ascendingFifths);
+            try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                    .source(new InMemory().buffer(ascendingFifths.asByteArray()))
+                    .sink(other)
+                    .build()) {
+                chain.flowEffects();
+            }
+            assertThat(waiting.isDone()).isFalse();
+
+            ByteBuffer wav = ascendingFifths.asByteBuffer();
+            while (wav.hasRemaining()) {
+                upload.sink().write(wav);
+            }
+            upload.sink().close();
+
+            assertThat(waiting.get().getOutput()).isEqualTo(other.getOutput());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
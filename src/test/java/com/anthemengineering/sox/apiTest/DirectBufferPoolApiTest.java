@@ -0,0 +1,100 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.DirectBufferPool;
+import com.anthemengineering.sox.SoxException;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class DirectBufferPoolApiTest {
+    @Test
+    public void shouldRoundUpToSizeClasses() {
+        DirectBufferPool pool = new DirectBufferPool(1 << 20, 1 << 24);
+
+        ByteBuffer small = pool.acquire(10);
+        ByteBuffer large = pool.acquire(5000);
+
+        assertThat(small.isDirect()).isTrue();
+        assertThat(small.capacity()).isEqualTo(DirectBufferPool.MIN_BLOCK_SIZE);
+        assertThat(small.limit()).isEqualTo(10);
+        assertThat(large.capacity()).isEqualTo(8192);
+        assertThat(large.limit()).isEqualTo(5000);
+        assertThat(pool.getOutstandingBytes()).isEqualTo(4096 + 8192);
+    }
+
+    @Test
+    public void shouldReuseReleasedBlocks() {
+        DirectBufferPool pool = new DirectBufferPool(1 << 20, 1 << 24);
+
+        ByteBuffer first = pool.acquire(3000);
+        first.put((byte) 1);
+        pool.release(first);
+
+        ByteBuffer second = pool.acquire(4000);
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.position()).isEqualTo(0);
+        assertThat(second.limit()).isEqualTo(4000);
+        assertThat(pool.getHits()).isEqualTo(1);
+        assertThat(pool.getMisses()).isEqualTo(1);
+        assertThat(pool.getOutstandingBytes()).isEqualTo(4096);
+        assertThat(pool.getRetainedBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotKeepBlocksOverTheMaximumSize() {
+        DirectBufferPool pool = new DirectBufferPool(8192, 1 << 24);
+
+        ByteBuffer buffer = pool.acquire(10000);
+        assertThat(buffer.capacity()).isEqualTo(10000);
+
+        pool.release(buffer);
+
+        assertThat(pool.getOutstandingBytes()).isEqualTo(0);
+        assertThat(pool.getRetainedBytes()).isEqualTo(0);
+        assertThat(pool.acquire(10000)).isNotSameAs(buffer);
+        assertThat(pool.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotRetainMoreThanTheLimit() {
+        DirectBufferPool pool = new DirectBufferPool(8192, 8192);
+
+        ByteBuffer first = pool.acquire(8192);
+        ByteBuffer second = pool.acquire(8192);
+        pool.release(first);
+        pool.release(second);
+
+        assertThat(pool.getRetainedBytes()).isEqualTo(8192);
+        assertThat(pool.getOutstandingBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldRejectEmptyRequests() {
+        try {
+            new DirectBufferPool(8192, 8192).acquire(0);
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessage("Size must be positive");
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.ChainFuture;
+import com.anthemengineering.sox.ChainResult;
+import com.anthemengineering.sox.FlowListener;
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxExecutor;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.format.FileSource;
+import com.anthemengineering.sox.format.InMemory;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.anthemengineering.sox.TestSinks.inMemorySink;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class FlowEffectsAsyncApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+
+    @Test
+    public void shouldCompleteWithResult() throws Exception {
+        InMemory sink = inMemorySink(ascendingFifths);
+
+        try (SoxExecutor executor = new SoxExecutor(1);
+             SoxEffectsChain chain = builder(sink).build()) {
+            ChainResult result = chain.flowEffectsAsync(executor).get(10, TimeUnit.SECONDS);
+
+            assertThat(result.getOutputSamples()).isGreaterThan(0);
+            assertThat(result.getClips()).isGreaterThan(0);
+            assertThat(result.getFlowTime(TimeUnit.NANOSECONDS)).isGreaterThan(0);
+            assertThat(result.getQueuedTime(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+        }
+
+        assertThat(sink.getOutputLength()).isGreaterThan(0);
+    }
+
+    @Test
+    public void shouldRunListenersOnceDone() throws Exception {
+        final CountDownLatch before = new CountDownLatch(1);
+        final CountDownLatch after = new CountDownLatch(1);
+
+        try (SoxExecutor executor = new SoxExecutor(1);
+             SoxEffectsChain chain = builder(inMemorySink(ascendingFifths)).build()) {
+            ChainFuture future = chain.flowEffectsAsync(executor);
+            future.addListener(countDown(before), executor);
+            future.get(10, TimeUnit.SECONDS);
+            future.addListener(countDown(after), executor);
+
+            assertThat(before.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(after.await(10, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldCancelRunningFlow() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+
+        FlowListener listener = new FlowListener() {
+            @Override
+            public boolean onProgress(long samples, boolean done) {
+                started.countDown();
+                try {
+                    cancelled.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return true;
+            }
+        };
+
+        try (SoxExecutor executor = new SoxExecutor(1);
+             SoxEffectsChain chain = builder(inMemorySink(ascendingFifths)).build()) {
+            ChainFuture future = chain.flowEffectsAsync(executor, listener);
+
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(future.cancel(false)).isTrue();
+            assertThat(future.isDone())
+                    .describedAs("The future should only be done once the flow has returned")
+                    .isFalse();
+            cancelled.countDown();
+
+            try {
+                future.get(10, TimeUnit.SECONDS);
+
+                failBecauseExceptionWasNotThrown(CancellationException.class);
+            } catch (CancellationException e) {
+                // the flow has returned, the chain can be closed
+            }
+
+            assertThat(future.isCancelled()).isTrue();
+            assertThat(chain.isCancelled()).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldRejectWhenQueueIsFull() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        try (SoxExecutor executor = new SoxExecutor(1, 1)) {
+            // one running, one queued
+            executor.execute(blocking);
+            executor.execute(blocking);
+
+            try {
+                executor.execute(blocking);
+
+                failBecauseExceptionWasNotThrown(RejectedExecutionException.class);
+            } catch (RejectedExecutionException e) {
+                // expected
+            } finally {
+                release.countDown();
+            }
+        }
+    }
+
+    private static Runnable countDown(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+
+    private static SoxEffectsChain.Builder builder(InMemory sink) {
+        return SoxEffectsChain.builder()
+                .source(new FileSource().path("src/test/resources/ascending-fifths.wav"))
+                .sink(sink)
+                .effect("vol", "2");
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxSampleReader;
+import com.anthemengineering.sox.SoxSampleWriter;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.format.InMemory;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+
+    @Test
+    public void shouldCopyOnlyTheRemainingBytesOfAHeapBuffer() {
+        byte[] padded = new byte[] {9, 9, 1, 2, 3, 9};
+        ByteBuffer region = ByteBuffer.wrap(padded);
+        region.position(2).limit(5);
+
+        InMemory memory = new InMemory().buffer(region.slice().asReadOnlyBuffer());
+
+        assertThat(memory.getBufferSize()).isEqualTo(3);
+        assertThat(toArray(memory.getBuffer())).isEqualTo(new byte[] {1, 2, 3});
+        assertThat(region.position()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldCopyARangeOfAnArray() {
+        InMemory memory = new InMemory().buffer(new byte[] {9, 1, 2, 9}, 1, 2);
+
+        assertThat(toArray(memory.getBuffer())).isEqualTo(new byte[] {1, 2});
+    }
+
+    @Test
+    public void shouldUseTheRemainingBytesOfADirectBufferInPlace() {
+        ByteBuffer direct = ByteBuffer.allocateDirect(6).put(new byte[] {9, 9, 1, 2, 3, 9});
+        direct.position(2).limit(5);
+
+        InMemory memory = new InMemory().buffer(direct);
+        direct.put(2, (byte) 7);
+
+        assertThat(toArray(memory.getBuffer())).isEqualTo(new byte[] {7, 2, 3});
+    }
+
+    @Test
+    public void shouldDecodeFromAReadOnlyHeapSlice() {
+        byte[] wav = ascendingFifths.asByteArray();
+        byte[] padded = new byte[wav.length + 128];
+        System.arraycopy(wav, 0, padded, 64, wav.length);
+
+        ByteBuffer region = ByteBuffer.wrap(padded, 64, wav.length).slice().asReadOnlyBuffer();
+
+        assertThat(flow(new InMemory().buffer(region))).isEqualTo(flow(new InMemory().buffer(wav)));
+    }
+
+    @Test
+    public void shouldReadAnArraySourceMoreThanOnce() {
+        InMemory source = new InMemory().buffer(ascendingFifths.asByteArray());
+
+        assertThat(flow(source)).isEqualTo(flow(source));
+    }
+
+    @Test
+    public void shouldIncludeWhatTheFormatWritesOnClose() {
+        // flac only encodes the last, partial block when it is closed
+        int[] samples = new int[44100 + 1234];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (i % 100) << 20;
+        }
+
+        InMemory sink = new InMemory().buffer(ByteBuffer.allocateDirect(1024 * 1024), 1024 * 1024);
+
+        try (SoxSampleWriter writer = SoxSampleWriter.builder()
+                .sink(sink)
+                .rate(44100)
+                .channels(1)
+                .type("flac")
+                .build()) {
+            writer.write(samples);
+        }
+
+        long total = 0;
+        try (SoxSampleReader reader = SoxSampleReader.builder()
+                .source(new InMemory().buffer(sink.getOutput()))
+                .build()) {
+            while (reader.hasNext()) {
+                total += reader.next().remaining();
+            }
+        }
+
+        assertThat(total).isEqualTo(samples.length);
+    }
+
+    private static byte[] flow(InMemory source) {
+        int size = ascendingFifths.size() * 2;
+        InMemory sink = new InMemory().buffer(ByteBuffer.allocateDirect(size), size);
+
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(source)
+                .sink(sink)
+                .effect(new HighpassFilter().frequency("1000"))
+                .build()) {
+            chain.flowEffects();
+        }
+
+        return toArray(sink.getOutput());
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+
+        return bytes;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.JavaEffect;
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.format.InMemory;
+import org.junit.Test;
+
+import java.nio.IntBuffer;
+
+import static com.anthemengineering.sox.TestSinks.inMemorySink;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class JavaEffectApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+
+    @Test
+    public void shouldPassSamplesThroughJavaEffect() {
+        InMemory expected = inMemorySink(ascendingFifths);
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(source())
+                .sink(expected)
+                .effect(new HighpassFilter().frequency("1000"))
+                .build()) {
+            chain.flowEffects();
+        }
+
+        Meter meter = new Meter();
+        InMemory actual = inMemorySink(ascendingFifths);
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(source())
+                .sink(actual)
+                .effect(meter)
+                .effect(new HighpassFilter().frequency("1000"))
+                .build()) {
+            chain.flowEffects();
+        }
+
+        assertThat(actual.getOutput()).isEqualTo(expected.getOutput());
+        assertThat(meter.channels).isEqualTo(2);
+        // 16-bit stereo after a 44 byte header
+        assertThat(meter.samples).isEqualTo((ascendingFifths.size() - 44) / 2);
+        assertThat(meter.peak).isGreaterThan(0);
+    }
+
+    @Test
+    public void shouldRethrowFailuresOfJavaEffects() {
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(source())
+                .sink(inMemorySink(ascendingFifths))
+                .effect(new JavaEffect("failing") {
+                    @Override
+                    protected void flow(IntBuffer in, IntBuffer out) {
+                        throw new IllegalStateException("Failing on purpose");
+                    }
+                })
+                .build()) {
+            chain.flowEffects();
+
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("Failing on purpose");
+        }
+    }
+
+    private static InMemory source() {
+        return new InMemory().buffer(ascendingFifths.asByteArray());
+    }
+
+    private static final class Meter extends JavaEffect {
+        private int channels;
+        private long samples;
+        private int peak;
+
+        Meter() {
+            super("meter");
+        }
+
+        @Override
+        protected void start(double rate, int channels) {
+            this.channels = channels;
+        }
+
+        @Override
+        protected void flow(IntBuffer in, IntBuffer out) {
+            int count = Math.min(in.remaining(), out.remaining());
+
+            for (int i = 0; i < count; i++) {
+                int sample = in.get();
+                peak = Math.max(peak, Math.abs(sample));
+                out.put(sample);
+            }
+
+            samples += count;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.format.FileSource;
+import com.anthemengineering.sox.format.InMemory;
+import com.anthemengineering.sox.format.MappedFileSource;
+import com.anthemengineering.sox.format.SoxSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.anthemengineering.sox.TestSinks.inMemorySink;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class MappedFileSourceApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+
+    private Path input;
+
+    @Before
+    public void setUp() throws Exception {
+        input = Files.createTempFile("mapped-file-source", ".wav");
+        Files.write(input, ascendingFifths.asByteArray());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(input);
+    }
+
+    @Test
+    public void shouldDecodeLikeAFileSource() {
+        InMemory expected = flow(new FileSource().path(input));
+        InMemory actual = flow(new MappedFileSource().path(input));
+
+        assertThat(actual.getOutput()).isEqualTo(expected.getOutput());
+    }
+
+    @Test
+    public void shouldBeReusable() {
+        MappedFileSource source = new MappedFileSource().path(input);
+
+        assertThat(flow(source).getOutput()).isEqualTo(flow(source).getOutput());
+    }
+
+    @Test
+    public void shouldNotBeOpenedTwiceAtOnce() {
+        MappedFileSource source = new MappedFileSource().path(input);
+
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(source)
+                .sink(inMemorySink(ascendingFifths))
+                .build()) {
+            try {
+                flow(source);
+                failBecauseExceptionWasNotThrown(SoxException.class);
+            } catch (SoxException e) {
+                assertThat(e).hasMessage("Mapped file source is already open");
+            }
+
+            chain.flowEffects();
+        }
+
+        // the mapping of the first chain was released when it closed
+        flow(source);
+    }
+
+    @Test
+    public void shouldFailOnMissingFile() throws Exception {
+        Files.delete(input);
+
+        try {
+            flow(new MappedFileSource().path(input));
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessageContaining(input.getFileName().toString());
+        }
+    }
+
+    private static InMemory flow(SoxSource source) {
+        InMemory sink = inMemorySink(ascendingFifths);
+
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(source)
+                .sink(sink)
+                .effect(new HighpassFilter().frequency("1000"))
+                .build()) {
+            chain.flowEffects();
+        }
+
+        return sink;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.SampleConverter;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class SampleConverterApiTest {
+    @Test
+    public void shouldNormalizeToFloat() {
+        float[] converted = new float[4];
+
+        SampleConverter.toFloat(new int[] {0, Integer.MIN_VALUE, 1 << 30, Integer.MAX_VALUE}, 0, converted, 0, 4);
+
+        assertThat(converted[0]).isEqualTo(0f);
+        assertThat(converted[1]).isEqualTo(-1f);
+        assertThat(converted[2]).isEqualTo(0.5f);
+        assertThat(converted[3]).isCloseTo(1f, within(1e-6f));
+    }
+
+    @Test
+    public void shouldClipFromFloat() {
+        int[] converted = new int[6];
+
+        int clips = SampleConverter.fromFloat(new float[] {0f, 0.5f, -1f, 1f, 1.5f, -2f}, 0, converted, 0, 6);
+
+        assertThat(clips).isEqualTo(2);
+        assertThat(converted).containsExactly(
+                0, 1 << 30, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE);
+    }
+
+    @Test
+    public void shouldRoundTripDoubles() {
+        int[] samples = {0, 1, -1, 123456789, -987654321, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        double[] doubles = new double[samples.length];
+        int[] back = new int[samples.length];
+
+        SampleConverter.toDouble(samples, 0, doubles, 0, samples.length);
+        int clips = SampleConverter.fromDouble(doubles, 0, back, 0, samples.length);
+
+        assertThat(clips).isEqualTo(0);
+        assertThat(back).isEqualTo(samples);
+    }
+
+    @Test
+    public void shouldRoundAndClipTo16Bits() {
+        short[] converted = new short[5];
+
+        int clips = SampleConverter.toShort(
+                new int[] {0x7fff8000, 0x00018000, 0x00017fff, Integer.MIN_VALUE, -1}, 0, converted, 0, 5);
+
+        assertThat(clips).isEqualTo(1);
+        assertThat(converted).containsExactly(Short.MAX_VALUE, (short) 2, (short) 1, Short.MIN_VALUE, (short) 0);
+    }
+
+    @Test
+    public void shouldWiden16Bits() {
+        int[] converted = new int[2];
+
+        SampleConverter.fromShort(new short[] {Short.MIN_VALUE, 1}, 0, converted, 0, 2);
+
+        assertThat(converted).containsExactly(Integer.MIN_VALUE, 1 << 16);
+    }
+
+    @Test
+    public void shouldConvertDirectBuffersAndAdvancePositions() {
+        IntBuffer samples = ByteBuffer.allocateDirect(16).order(ByteOrder.nativeOrder()).asIntBuffer();
+        samples.put(new int[] {1 << 30, -(1 << 30), 0, 0}).flip();
+        samples.position(1);
+        FloatBuffer floats = FloatBuffer.allocate(2);
+
+        SampleConverter.toFloat(samples, floats);
+
+        assertThat(samples.position()).isEqualTo(3);
+        assertThat(floats.position()).isEqualTo(2);
+        assertThat(floats.array()).containsExactly(-0.5f, 0f);
+    }
+
+    @Test
+    public void shouldConvertOffsetHeapBuffers() {
+        FloatBuffer floats = FloatBuffer.wrap(new float[] {9f, 0.5f, 2f}, 1, 2).slice();
+        IntBuffer samples = IntBuffer.allocate(3);
+
+        int clips = SampleConverter.fromFloat(floats, samples);
+        samples.flip();
+
+        assertThat(clips).isEqualTo(1);
+        assertThat(samples.remaining()).isEqualTo(2);
+        assertThat(samples.get(0)).isEqualTo(1 << 30);
+        assertThat(samples.get(1)).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void shouldConvertBetweenBuffersOfShortsAndDoubles() {
+        ShortBuffer shorts = ShortBuffer.allocate(1);
+        DoubleBuffer doubles = DoubleBuffer.allocate(1);
+        IntBuffer samples = IntBuffer.allocate(1);
+
+        SampleConverter.fromShort(ShortBuffer.wrap(new short[] {-16384}), samples);
+        samples.flip();
+        SampleConverter.toDouble(samples.duplicate(), doubles);
+        SampleConverter.toShort(samples, shorts);
+
+        assertThat(doubles.get(0)).isEqualTo(-0.5);
+        assertThat(shorts.get(0)).isEqualTo((short) -16384);
+    }
+}
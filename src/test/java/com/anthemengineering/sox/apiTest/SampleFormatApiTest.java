@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.format.PcmChannelSink;
+import com.anthemengineering.sox.format.PcmChannelSource;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class SampleFormatApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+    private static final int HEADER_SIZE = 44;
+
+    @Test
+    public void shouldStreamPcmThroughAChain() {
+        byte[] wav = ascendingFifths.asByteArray();
+        byte[] pcm = Arrays.copyOfRange(wav, HEADER_SIZE, wav.length);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PcmChannelSink sink = new PcmChannelSink().channel(Channels.newChannel(output)).bufferSize(1000);
+
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(new PcmChannelSource()
+                        .channel(Channels.newChannel(new ByteArrayInputStream(pcm)))
+                        .rate(44100)
+                        .channels(2)
+                        .bufferSize(1000))
+                .sink(sink)
+                .build()) {
+            chain.flowEffects();
+        }
+
+        assertThat(output.toByteArray()).isEqualTo(pcm);
+        assertThat(sink.getClips()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldRethrowReadFailuresOnClose() {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Failing on purpose");
+            }
+        };
+
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(new PcmChannelSource().channel(Channels.newChannel(failing)).rate(44100).channels(2))
+                .sink(new PcmChannelSink().channel(Channels.newChannel(new ByteArrayOutputStream())))
+                .build()) {
+            chain.flowEffects();
+        } catch (RuntimeException e) {
+            assertThat(e).hasMessage("Could not read from channel");
+            return;
+        }
+
+        failBecauseExceptionWasNotThrown(RuntimeException.class);
+    }
+}
@@ -16,6 +16,8 @@
 
 package com.anthemengineering.sox.apiTest;
 
+import com.anthemengineering.sox.FlowListener;
+import com.anthemengineering.sox.SoxCancelledException;
 import com.anthemengineering.sox.SoxEffectsChain;
 import com.anthemengineering.sox.SoxException;
 import com.anthemengineering.sox.TestResource;
@@ -25,6 +27,7 @@ import com.anthemengineering.sox.effects.utils.Filter;
 import com.anthemengineering.sox.format.FileSink;
 import com.anthemengineering.sox.format.FileSource;
 import com.anthemengineering.sox.format.InMemory;
+import com.anthemengineering.sox.format.MemoryStreamSink;
 import com.sun.jna.Memory;
 import com.sun.jna.Native;
 import com.sun.jna.Pointer;
@@ -38,6 +41,8 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
@@ -146,7 +151,8 @@ public class SoxEffectsChainApiTest {
                 .effect(new HighpassFilter().frequency("1000"))
                 .effect(new Flanger())
                 .build()
-                .flowEffects();
+                .flowEffects()
+                .close();
 
         byte[] bufferBytes = new byte[ascendingFifths.size()];
         buffer.rewind();
@@ -156,6 +162,165 @@ public class SoxEffectsChainApiTest {
                 .startsWith("RIFF".getBytes(StandardCharsets.US_ASCII));
     }
 
+    @Test
+    public void shouldReportOutputLengthOfByteBufferSink() {
+        InMemory sink = new InMemory().buffer(ByteBuffer.allocateDirect(ascendingFifths.size() * 2), ascendingFifths.size() * 2);
+
+        SoxEffectsChain.builder()
+                .source(new FileSource().path("src/test/resources/ascending-fifths.wav"))
+                .sink(sink)
+                .effect(new HighpassFilter().frequency("1000"))
+                .build()
+                .flowEffects()
+                .close();
+
+        assertThat(sink.getOutputLength()).isEqualTo(ascendingFifths.size());
+        assertThat(sink.getOutput().remaining()).isEqualTo(ascendingFifths.size());
+    }
+
+    @Test
+    public void shouldAllowMemoryStreamToBeUsedAsSink() {
+        MemoryStreamSink sink = new MemoryStreamSink();
+
+        SoxEffectsChain.builder()
+                .source(new FileSource().path("src/test/resources/ascending-fifths.wav"))
+                .sink(sink)
+                .effect(new HighpassFilter().frequency("1000"))
+                .build()
+                .flowEffects()
+                .close();
+
+        try {
+            ByteBuffer buffer = sink.getBuffer();
+            byte[] riff = new byte[4];
+            buffer.get(riff);
+
+            assertThat(sink.size()).isEqualTo(ascendingFifths.size());
+            assertThat(riff).isEqualTo("RIFF".getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            sink.release();
+        }
+    }
+
+    @Test
+    public void shouldOnlyExposeMemoryStreamOutputOnceClosed() {
+        MemoryStreamSink sink = new MemoryStreamSink();
+
+        try {
+            sink.getBuffer();
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessage("Output is only available once the sink has been closed");
+        }
+    }
+
+    @Test
+    public void shouldAllowMemoryStreamSinkToBeReusedAfterFailingToOpen() {
+        MemoryStreamSink sink = new MemoryStreamSink().type("not-a-type");
+
+        try {
+            SoxEffectsChain.builder()
+                    .source(new FileSource().path("src/test/resources/ascending-fifths.wav"))
+                    .sink(sink)
+                    .build();
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            // unknown type
+        }
+
+        SoxEffectsChain.builder()
+                .source(new FileSource().path("src/test/resources/ascending-fifths.wav"))
+                .sink(sink.type("wav"))
+                .build()
+                .flowEffects()
+                .close();
+
+        try {
+            assertThat(sink.size()).isEqualTo(ascendingFifths.size());
+        } finally {
+            sink.release();
+        }
+    }
+
+    @Test
+    public void shouldStopFlowWhenListenerReturnsFalse() {
+        final AtomicLong progress = new AtomicLong(-1);
+
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(new FileSource().path("src/test/resources/ascending-fifths.wav"))
+                .sink(new FileSink().path(testPath("shouldStopFlowWhenListenerReturnsFalse.wav")).allowOverwrite())
+                .effect(new Flanger())
+                .build()) {
+            try {
+                chain.flowEffects(new FlowListener() {
+                    @Override
+                    public boolean onProgress(long samples, boolean done) {
+                        progress.set(samples);
+                        return false;
+                    }
+                }, 0, TimeUnit.MILLISECONDS);
+
+                failBecauseExceptionWasNotThrown(SoxCancelledException.class);
+            } catch (SoxCancelledException e) {
+                assertThat(chain.isCancelled()).isTrue();
+            }
+        }
+
+        assertThat(progress.get())
+                .isGreaterThanOrEqualTo(0)
+                .isLessThan(ascendingFifths.size());
+    }
+
+    @Test
+    public void shouldCloseSourceAndSinkWhenBuildFails() {
+        ClosingInMemory source = new ClosingInMemory();
+        source.buffer(ascendingFifths.asByteArray());
+        ClosingInMemory sink = new ClosingInMemory();
+        sink.buffer(ByteBuffer.allocateDirect(ascendingFifths.size()), ascendingFifths.size());
+
+        try {
+            SoxEffectsChain.builder()
+                    .source(source)
+                    .sink(sink)
+                    .effect("highpass", "not-a-frequency")
+                    .build();
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessageContaining("highpass");
+        }
+
+        assertThat(source.closes).isEqualTo(1);
+        assertThat(sink.closes).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCloseOnlyOnce() {
+        ClosingInMemory source = new ClosingInMemory();
+        source.buffer(ascendingFifths.asByteArray());
+
+        SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(source)
+                .sink(new InMemory().buffer(ByteBuffer.allocateDirect(ascendingFifths.size()), ascendingFifths.size()))
+                .build();
+        chain.close();
+        chain.close();
+
+        assertThat(source.closes).isEqualTo(1);
+    }
+
+    private static class ClosingInMemory extends InMemory {
+        private int closes;
+
+        @Override
+        public void afterClose() {
+            closes++;
+            super.afterClose();
+        }
+    }
+
     private void deleteSafe(Path p) {
         try {
             Files.deleteIfExists(p);
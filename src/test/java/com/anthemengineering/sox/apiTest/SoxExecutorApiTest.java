@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.FlowListener;
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxExecutor;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.effects.Compand;
+import com.anthemengineering.sox.effects.Flanger;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.format.InMemory;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.anthemengineering.sox.TestSinks.inMemorySink;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SoxExecutorApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+    private static final int CHAINS = 32;
+
+    @Test
+    public void shouldProduceIdenticalOutputInParallel() throws Exception {
+        InMemory reference = inMemorySink(ascendingFifths);
+        try (SoxEffectsChain chain = builder(reference).build()) {
+            chain.flowEffects();
+        }
+        byte[] expected = toBytes(reference);
+
+        try (SoxExecutor executor = new SoxExecutor(4)) {
+            List<InMemory> sinks = new ArrayList<>();
+            List<Future<SoxEffectsChain>> results = new ArrayList<>();
+
+            for (int i = 0; i < CHAINS; i++) {
+                InMemory sink = inMemorySink(ascendingFifths);
+                sinks.add(sink);
+                results.add(executor.submit(builder(sink)));
+            }
+
+            for (Future<SoxEffectsChain> result : results) {
+                result.get();
+            }
+
+            for (InMemory sink : sinks) {
+                assertThat(toBytes(sink)).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void shouldFlowChainsInParallel() throws Exception {
+        final int threads = 4;
+        final CountDownLatch flowing = new CountDownLatch(threads);
+        final Set<String> flowingThreads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        List<Future<SoxEffectsChain>> results = new ArrayList<>();
+
+        try (SoxExecutor executor = new SoxExecutor(threads)) {
+            for (int i = 0; i < threads; i++) {
+                // every flow holds on until all of them are in progress, which only happens if they run in parallel
+                results.add(executor.submit(builder(inMemorySink(ascendingFifths)), new FlowListener() {
+                    private boolean started;
+
+                    @Override
+                    public boolean onProgress(long samples, boolean done) {
+                        if (started) {
+                            return true;
+                        }
+
+                        started = true;
+                        flowingThreads.add(Thread.currentThread().getName());
+                        flowing.countDown();
+
+                        try {
+                            return flowing.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return false;
+                        }
+                    }
+                }));
+            }
+
+            for (Future<SoxEffectsChain> result : results) {
+                result.get();
+            }
+        }
+
+        assertThat(flowingThreads).hasSize(threads);
+    }
+
+    private static SoxEffectsChain.Builder builder(InMemory sink) {
+        return SoxEffectsChain.builder()
+                .source(new InMemory().buffer(ascendingFifths.asByteArray()))
+                .sink(sink)
+                .effect(new HighpassFilter().frequency("1000"))
+                .effect(new Flanger())
+                .effect(new Compand().addAttackDecay(0.3f, 1f).addTransferFunction(-70f, -60f).gainDb(-5f));
+    }
+
+    private static byte[] toBytes(InMemory sink) {
+        ByteBuffer output = sink.getOutput();
+        byte[] bytes = new byte[output.remaining()];
+        output.get(bytes);
+
+        return bytes;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.SoxGlobals;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.format.InMemory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static com.anthemengineering.sox.TestSinks.inMemorySink;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class SoxGlobalsApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+
+    private int bufferSize;
+    private int inputBufferSize;
+    private boolean useThreads;
+
+    @Before
+    public void setUp() {
+        bufferSize = SoxGlobals.getBufferSize();
+        inputBufferSize = SoxGlobals.getInputBufferSize();
+        useThreads = SoxGlobals.isUsingThreads();
+    }
+
+    @After
+    public void tearDown() {
+        SoxGlobals.builder()
+                .bufferSize(bufferSize)
+                .inputBufferSize(inputBufferSize)
+                .useThreads(useThreads)
+                .apply();
+    }
+
+    @Test
+    public void shouldApplyBufferSizes() {
+        SoxGlobals.builder().bufferSize(16384).inputBufferSize(65536).apply();
+
+        assertThat(SoxGlobals.getBufferSize()).isEqualTo(16384);
+        assertThat(SoxGlobals.getInputBufferSize()).isEqualTo(65536);
+    }
+
+    @Test
+    public void shouldOnlyApplyFieldsThatWereSet() {
+        SoxGlobals.builder().inputBufferSize(4096).apply();
+
+        assertThat(SoxGlobals.getBufferSize()).isEqualTo(bufferSize);
+    }
+
+    @Test
+    public void shouldProduceTheSameOutputWithAnyBufferSize() {
+        SoxGlobals.builder().bufferSize(512).apply();
+        ByteBuffer small = flow();
+
+        SoxGlobals.builder().bufferSize(131072).apply();
+        ByteBuffer large = flow();
+
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    public void shouldApplyUseThreads() {
+        SoxGlobals.builder().useThreads(true).apply();
+        assertThat(SoxGlobals.isUsingThreads()).isTrue();
+
+        SoxGlobals.builder().useThreads(false).apply();
+        assertThat(SoxGlobals.isUsingThreads()).isFalse();
+    }
+
+    @Test
+    public void shouldProduceTheSameOutputWithThreads() {
+        SoxGlobals.builder().useThreads(false).apply();
+        ByteBuffer sequential = flow();
+
+        SoxGlobals.builder().useThreads(true).apply();
+        ByteBuffer threaded = flow();
+
+        assertThat(threaded).isEqualTo(sequential);
+    }
+
+    @Test
+    public void shouldRefuseChangesWhileAChainIsOpen() {
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(new InMemory().buffer(ascendingFifths.asByteArray()))
+                .sink(inMemorySink(ascendingFifths))
+                .build()) {
+            SoxGlobals.builder().useThreads(true).apply();
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessageContaining("while chains, readers or writers are open");
+        }
+
+        assertThat(SoxGlobals.isUsingThreads()).isEqualTo(useThreads);
+    }
+
+    @Test
+    public void shouldRejectNonPositiveBufferSize() {
+        try {
+            SoxGlobals.builder().bufferSize(0);
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessage("Buffer size must be positive");
+        }
+    }
+
+    private static ByteBuffer flow() {
+        InMemory sink = inMemorySink(ascendingFifths);
+
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(new InMemory().buffer(ascendingFifths.asByteArray()))
+                .sink(sink)
+                .effect(new HighpassFilter().frequency("1000"))
+                .build()) {
+            chain.flowEffects();
+        }
+
+        return sink.getOutput();
+    }
+}
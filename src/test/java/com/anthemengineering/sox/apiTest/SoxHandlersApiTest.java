@@ -0,0 +1,50 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.SoxHandlers;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class SoxHandlersApiTest {
+    @Test
+    public void shouldOnlyLookUpHandlersOnce() {
+        SoxHandlers.prewarmEffects("highpass", "flanger");
+
+        long effectMisses = SoxHandlers.getEffectMisses();
+        long effectHits = SoxHandlers.getEffectHits();
+
+        assertThat(SoxHandlers.effect("highpass")).isSameAs(SoxHandlers.effect("highpass"));
+
+        assertThat(SoxHandlers.getEffectMisses()).isEqualTo(effectMisses);
+        assertThat(SoxHandlers.getEffectHits()).isEqualTo(effectHits + 2);
+    }
+
+    @Test
+    public void shouldThrowForUnknownEffects() {
+        try {
+            SoxHandlers.effect("no-such-effect");
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessage("Could not find effects handler with name no-such-effect");
+        }
+    }
+}
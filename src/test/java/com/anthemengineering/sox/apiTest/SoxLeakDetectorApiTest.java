@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxLeakDetector;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.format.InMemory;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SoxLeakDetectorApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+
+    @Test
+    public void shouldCountClosedChains() {
+        long closed = SoxLeakDetector.getClosed();
+
+        build(new AtomicInteger()).close();
+
+        assertThat(SoxLeakDetector.getClosed()).isEqualTo(closed + 1);
+    }
+
+    @Test
+    public void shouldReleaseLeakedChains() throws Exception {
+        AtomicInteger closes = new AtomicInteger();
+        long leaked = SoxLeakDetector.getLeaked();
+
+        build(closes);
+
+        for (int i = 0; i < 50 && closes.get() == 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+            SoxLeakDetector.releaseLeaked();
+        }
+
+        assertThat(closes.get()).isEqualTo(1);
+        assertThat(SoxLeakDetector.getLeaked()).isGreaterThan(leaked);
+    }
+
+    private static SoxEffectsChain build(final AtomicInteger closes) {
+        InMemory source = new InMemory() {
+            @Override
+            public void afterClose() {
+                closes.incrementAndGet();
+                super.afterClose();
+            }
+        };
+
+        return SoxEffectsChain.builder()
+                .source(source.buffer(ascendingFifths.asByteArray()))
+                .sink(new InMemory().buffer(ByteBuffer.allocateDirect(ascendingFifths.size()), ascendingFifths.size()))
+                .build();
+    }
+}
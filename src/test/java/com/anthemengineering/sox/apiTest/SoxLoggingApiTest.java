@@ -0,0 +1,153 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.SoxGlobals;
+import com.anthemengineering.sox.SoxLogging;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.format.InMemory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static com.anthemengineering.sox.TestSinks.inMemorySink;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class SoxLoggingApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+
+    private final Logger logger = Logger.getLogger(SoxLogging.LOGGER_NAME);
+    private final List<LogRecord> records = new ArrayList<>();
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            records.add(record);
+        }
+
+        @Override
+        public void flush() {
+            // no op
+        }
+
+        @Override
+        public void close() {
+            // no op
+        }
+    };
+
+    private Level level;
+    private int verbosity;
+
+    @Before
+    public void setUp() {
+        level = logger.getLevel();
+        verbosity = SoxGlobals.getVerbosity();
+        logger.addHandler(handler);
+    }
+
+    @After
+    public void tearDown() {
+        SoxLogging.uninstall();
+        logger.removeHandler(handler);
+        logger.setLevel(level);
+        SoxGlobals.builder().verbosity(verbosity).apply();
+    }
+
+    @Test
+    public void shouldFollowTheLoggerLevel() {
+        logger.setLevel(Level.FINE);
+        SoxLogging.install();
+
+        assertThat(SoxLogging.isInstalled()).isTrue();
+        assertThat(SoxGlobals.getVerbosity()).isEqualTo(4);
+
+        logger.setLevel(Level.OFF);
+        SoxLogging.updateVerbosity();
+
+        assertThat(SoxGlobals.getVerbosity()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotChangeTheVerbosityWhileAChainIsOpen() {
+        logger.setLevel(Level.OFF);
+        SoxLogging.install();
+
+        try (SoxEffectsChain chain = SoxEffectsChain.builder()
+                .source(new InMemory().buffer(ascendingFifths.asByteArray()))
+                .sink(inMemorySink(ascendingFifths))
+                .build()) {
+            logger.setLevel(Level.FINE);
+
+            try {
+                SoxLogging.updateVerbosity();
+
+                failBecauseExceptionWasNotThrown(SoxException.class);
+            } catch (SoxException e) {
+                assertThat(e).hasMessageContaining("can not be changed while chains, readers or writers are open");
+            }
+
+            assertThat(SoxGlobals.getVerbosity()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void shouldLogFormattedMessages() {
+        logger.setLevel(Level.ALL);
+        SoxLogging.install();
+
+        failToAddEffect();
+
+        assertThat(records).isNotEmpty();
+        for (LogRecord record : records) {
+            assertThat(record.getMessage()).doesNotContain("%s");
+        }
+    }
+
+    @Test
+    public void shouldNotLogDisabledLevels() {
+        logger.setLevel(Level.OFF);
+        SoxLogging.install();
+
+        failToAddEffect();
+
+        assertThat(records).isEmpty();
+    }
+
+    private static void failToAddEffect() {
+        try {
+            SoxEffectsChain.builder()
+                    .source(new InMemory().buffer(ascendingFifths.asByteArray()))
+                    .sink(inMemorySink(ascendingFifths))
+                    .effect("highpass", "not-a-frequency")
+                    .build();
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            // libsox explains why through the message handler
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.SoxGlobals;
+import com.anthemengineering.sox.SoxSampleReader;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.format.FileSource;
+import com.anthemengineering.sox.format.FormatLifecycle;
+import com.anthemengineering.sox.format.InMemory;
+import com.anthemengineering.sox.format.SoxSource;
+import com.anthemengineering.sox.jna.sox_format_t;
+import org.junit.Test;
+
+import java.nio.IntBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class SoxSampleReaderApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+
+    @Test
+    public void shouldThrowWithoutSource() {
+        try {
+            SoxSampleReader.builder().build();
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessage("Source is required to be specified");
+        }
+    }
+
+    @Test
+    public void shouldRejectBlocksLargerThanTheMaximum() {
+        try {
+            SoxSampleReader.builder().blockSize(SoxSampleReader.MAX_BLOCK_SIZE + 1);
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessage("Block size must be at most " + SoxSampleReader.MAX_BLOCK_SIZE);
+        }
+    }
+
+    @Test
+    public void shouldCloseTheFormatWhenBuildFails() {
+        try {
+            SoxSampleReader.builder()
+                    .source(new TooManyChannels())
+                    .build();
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessage("Block can not hold a frame of " + Integer.MAX_VALUE + " channels");
+        }
+
+        // refused if the reader was still counted as open
+        SoxGlobals.builder().apply();
+    }
+
+    @Test
+    public void shouldReadWholeFramesIntoTheSameBuffer() {
+        try (SoxSampleReader reader = SoxSampleReader.builder()
+                .source(new FileSource().path("src/test/resources/ascending-fifths.wav"))
+                .blockSize(1001)
+                .build()) {
+            IntBuffer first = null;
+            long total = 0;
+
+            for (IntBuffer block; (block = reader.read()) != null; ) {
+                if (first == null) {
+                    first = block;
+                }
+
+                assertThat(block).isSameAs(first);
+                assertThat(block.remaining() % reader.getChannels()).isZero();
+                total += block.remaining();
+            }
+
+            assertThat(total).isEqualTo(reader.getLength());
+            assertThat(reader.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void shouldReadFromMemory() {
+        try (SoxSampleReader reader = SoxSampleReader.builder()
+                .source(new InMemory().buffer(ascendingFifths.asByteArray()))
+                .build()) {
+            long total = 0;
+
+            while (reader.hasNext()) {
+                total += reader.next().remaining();
+            }
+
+            assertThat(total).isEqualTo(reader.getLength());
+        }
+    }
+
+    /**
+     * Opens a file but reports more channels than fit in a block, until libsox closes it.
+     */
+    private static final class TooManyChannels implements SoxSource, FormatLifecycle {
+        private int channels;
+
+        @Override
+        public sox_format_t create() {
+            sox_format_t format = new FileSource().path("src/test/resources/ascending-fifths.wav").create();
+            channels = format.signal.channels;
+            format.signal.channels = Integer.MAX_VALUE;
+
+            return format;
+        }
+
+        @Override
+        public void beforeOpen() {
+            // no op
+        }
+
+        @Override
+        public void beforeClose(sox_format_t format) {
+            format.signal.channels = channels;
+        }
+
+        @Override
+        public void afterClose() {
+            // no op
+        }
+    }
+}
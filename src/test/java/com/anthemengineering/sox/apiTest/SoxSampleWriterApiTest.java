@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.SoxSampleReader;
+import com.anthemengineering.sox.SoxSampleWriter;
+import com.anthemengineering.sox.format.FileSink;
+import com.anthemengineering.sox.format.FileSource;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class SoxSampleWriterApiTest {
+    @BeforeClass
+    public static void setup() throws IOException {
+        Files.createDirectories(Paths.get("target/test-output"));
+    }
+
+    @Test
+    public void shouldThrowWithoutSignal() {
+        try {
+            SoxSampleWriter.builder().sink(new FileSink().path("target/test-output/nothing.wav")).build();
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessage("Rate is required to be specified");
+        }
+    }
+
+    @Test
+    public void shouldRejectBlocksLargerThanTheMaximum() {
+        try {
+            SoxSampleWriter.builder().blockSize(SoxSampleWriter.MAX_BLOCK_SIZE + 1);
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessage("Block size must be at most " + SoxSampleWriter.MAX_BLOCK_SIZE);
+        }
+    }
+
+    @Test
+    public void shouldRoundTripSamples() {
+        Path path = Paths.get("target/test-output/shouldRoundTripSamples.wav");
+        int[] samples = new int[20000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (i * 104729) << 8;
+        }
+
+        try (SoxSampleWriter writer = SoxSampleWriter.builder()
+                .sink(new FileSink().path(path).allowOverwrite())
+                .rate(8000)
+                .channels(2)
+                .precision(32)
+                .blockSize(999)
+                .build()) {
+            writer.write(samples, 0, 3)
+                    .write(IntBuffer.wrap(samples, 3, 10000))
+                    .write(samples, 10003, samples.length - 10003);
+        }
+
+        int[] read = new int[samples.length];
+        try (SoxSampleReader reader = SoxSampleReader.builder()
+                .source(new FileSource().path(path))
+                .build()) {
+            assertThat(reader.getChannels()).isEqualTo(2);
+            assertThat(reader.getLength()).isEqualTo(samples.length);
+
+            int offset = 0;
+            for (IntBuffer block; (block = reader.read()) != null; ) {
+                int count = block.remaining();
+                block.get(read, offset, count);
+                offset += count;
+            }
+        }
+
+        assertThat(read).isEqualTo(samples);
+    }
+
+    @Test
+    public void shouldClipFloatSamples() {
+        try (SoxSampleWriter writer = SoxSampleWriter.builder()
+                .sink(new FileSink().path("target/test-output/shouldClipFloatSamples.wav").allowOverwrite())
+                .rate(8000)
+                .channels(1)
+                .build()) {
+            writer.write(new float[]{0f, 0.5f, -1f, 1f, 1.5f, -2f});
+
+            assertThat(writer.getClips()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void shouldRejectWritesAfterClose() {
+        SoxSampleWriter writer = SoxSampleWriter.builder()
+                .sink(new FileSink().path("target/test-output/shouldRejectWritesAfterClose.wav").allowOverwrite())
+                .rate(8000)
+                .channels(1)
+                .build();
+        writer.close();
+
+        try {
+            writer.write(new int[]{1, 2, 3});
+
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("Writer is closed");
+        }
+
+        try {
+            writer.flush();
+
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("Writer is closed");
+        }
+
+        // closing again does nothing
+        writer.close();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *  Copyright 2019 Anthem Engineering LLC.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.anthemengineering.sox.apiTest;
+
+import com.anthemengineering.sox.SoxEffectsChain;
+import com.anthemengineering.sox.SoxException;
+import com.anthemengineering.sox.SoxWorkerPool;
+import com.anthemengineering.sox.TestResource;
+import com.anthemengineering.sox.effects.Flanger;
+import com.anthemengineering.sox.effects.HighpassFilter;
+import com.anthemengineering.sox.format.FileSink;
+import com.anthemengineering.sox.format.FileSource;
+import com.anthemengineering.sox.format.InMemory;
+import com.anthemengineering.sox.format.MemoryStreamSink;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.anthemengineering.sox.TestSinks.inMemorySink;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class SoxWorkerPoolApiTest {
+    private static final TestResource ascendingFifths = new TestResource("/ascending-fifths.wav");
+
+    @Test
+    public void shouldRejectSinksThatCanNotBeSentToWorkers() {
+        try (SoxWorkerPool pool = SoxWorkerPool.builder().workers(1).build()) {
+            pool.submit(SoxEffectsChain.builder()
+                    .source(new FileSource().path("src/test/resources/ascending-fifths.wav"))
+                    .sink(new MemoryStreamSink()));
+
+            failBecauseExceptionWasNotThrown(SoxException.class);
+        } catch (SoxException e) {
+            assertThat(e).hasMessageStartingWith("Sink is not supported by worker processes");
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void shouldKillWorkersThatTimeOutAndKeepTheirSlot() throws Exception {
+        // a worker that never answers: sh -c "exec sleep 60" -cp <classpath> <main class>
+        try (SoxWorkerPool pool = SoxWorkerPool.builder()
+                .workers(1)
+                .java("/bin/sh")
+                .jvmArgument("-c")
+                .jvmArgument("exec sleep 60")
+                .timeout(500, TimeUnit.MILLISECONDS)
+                .build()) {
+            // the second request only gets a worker if the slot of the first one was kept
+            for (int i = 0; i < 2; i++) {
+                try {
+                    pool.submit(SoxEffectsChain.builder()
+                            .source(new FileSource().path("src/test/resources/ascending-fifths.wav"))
+                            .sink(new FileSink().path("target/test-output/timeout.wav").allowOverwrite()))
+                            .get();
+
+                    failBecauseExceptionWasNotThrown(ExecutionException.class);
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).hasMessageStartingWith("Worker process timed out");
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void shouldDeleteSharedMemoryWhenTheRequestIsRejected() {
+        // a worker that exits once its stdin is closed: sh -c "exec cat > /dev/null" -cp <classpath> <main class>
+        SoxWorkerPool pool = SoxWorkerPool.builder()
+                .workers(1)
+                .java("/bin/sh")
+                .jvmArgument("-c")
+                .jvmArgument("exec cat > /dev/null")
+                .build();
+        pool.close();
+
+        List<String> before = sharedFiles();
+        try {
+            pool.submit(builder(inMemorySink(ascendingFifths)));
+
+            failBecauseExceptionWasNotThrown(RejectedExecutionException.class);
+        } catch (RejectedExecutionException e) {
+            // closed
+        }
+
+        assertThat(sharedFiles()).isEqualTo(before);
+    }
+
+    @Test
+    public void shouldProduceTheSameOutputAsInProcess() throws Exception {
+        InMemory expected = inMemorySink(ascendingFifths);
+        try (SoxEffectsChain chain = builder(expected).build()) {
+            chain.flowEffects();
+        }
+
+        InMemory actual = inMemorySink(ascendingFifths);
+        try (SoxWorkerPool pool = SoxWorkerPool.builder().workers(2).build()) {
+            pool.submit(builder(actual)).get();
+        }
+
+        assertThat(actual.getOutput()).isEqualTo(expected.getOutput());
+    }
+
+    private static SoxEffectsChain.Builder builder(InMemory sink) {
+        return SoxEffectsChain.builder()
+                .source(new InMemory().buffer(ascendingFifths.asByteArray()))
+                .sink(sink)
+                .effect(new HighpassFilter().frequency("1000"))
+                .effect(new Flanger());
+    }
+
+    private static List<String> sharedFiles() {
+        File shm = new File("/dev/shm");
+        File directory = shm.isDirectory() && shm.canWrite() ? shm : new File(System.getProperty("java.io.tmpdir"));
+        List<String> names = new ArrayList<>();
+
+        for (String name : directory.list()) {
+            if (name.startsWith("sox-") && name.endsWith(".shm")) {
+                names.add(name);
+            }
+        }
+        Collections.sort(names);
+
+        return names;
+    }
+}